@@ -0,0 +1,27 @@
+#!/bin/sh
+# Packages the clinic system as build/clinic.jar and generates an AppCDS
+# archive (build/clinic.jsa) from a training run over a representative input.
+# Loading classes from the archive skips parsing and verifying them at startup.
+#
+# Usage: scripts/package.sh [training input file (default: input.txt)]
+set -e
+
+# Absolute path of the repository, so that the class path recorded in the
+# archive matches the jar path used by scripts/run.sh from any directory
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+cd "$ROOT"
+TRAINING_INPUT="${1:-input.txt}"
+
+# Compile the sources and package them into an executable jar
+rm -rf build
+mkdir -p build/classes
+javac -encoding UTF-8 -d build/classes src/*.java
+jar --create --file build/clinic.jar --main-class Main -C build/classes .
+
+# Training run: load, evaluate, rank, and write a report once, then dump every
+# loaded class (Clinic, Patient, the Record subclasses, java.time parsing, ...)
+# into the archive on exit
+java -XX:ArchiveClassesAtExit="$ROOT/build/clinic.jsa" -jar "$ROOT/build/clinic.jar" \
+    "$TRAINING_INPUT" build/training-output.txt > /dev/null
+
+echo "Packaged build/clinic.jar with class archive build/clinic.jsa"
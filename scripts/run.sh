@@ -0,0 +1,17 @@
+#!/bin/sh
+# Runs the packaged clinic system with the class archive generated by
+# scripts/package.sh and JVM options suited to short runs.
+#
+# Usage: scripts/run.sh <input file> [output file] [options]
+set -e
+
+# Absolute path of the repository; the archive only loads when the jar path
+# matches the one recorded by scripts/package.sh
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+
+# -XX:SharedArchiveFile  load classes from the training run's archive
+# -XX:TieredStopAtLevel=1  only use the quick C1 compiler; short runs finish
+#                          before C2 compilation would pay off
+# -XX:+UseSerialGC  the cheapest collector to start for small heaps
+exec java -XX:SharedArchiveFile="$ROOT/build/clinic.jsa" -XX:TieredStopAtLevel=1 -XX:+UseSerialGC \
+    -jar "$ROOT/build/clinic.jar" "$@"
@@ -0,0 +1,42 @@
+#!/bin/sh
+# Measures time-to-first-report: the wall-clock time of a complete
+# non-interactive run, from launching the JVM until the report is written,
+# with and without the packaged launch mode.
+#
+# Usage: scripts/startup-bench.sh [input file (default: input.txt)] [runs (default: 10)]
+set -e
+
+cd "$(dirname "$0")/.."
+INPUT="${1:-input.txt}"
+RUNS="${2:-10}"
+OUTPUT="build/bench-output.txt"
+
+# Package first if needed
+if [ ! -f build/clinic.jsa ]; then
+    scripts/package.sh > /dev/null
+fi
+
+# Prints the average wall-clock time in milliseconds of running a command
+bench() {
+    label="$1"
+    shift
+
+    # Warm up the file system cache
+    "$@" > /dev/null
+
+    total=0
+    i=0
+    while [ "$i" -lt "$RUNS" ]; do
+        start=$(date +%s%N)
+        "$@" > /dev/null
+        end=$(date +%s%N)
+        total=$((total + (end - start) / 1000000))
+        i=$((i + 1))
+    done
+
+    echo "$label: $((total / RUNS)) ms"
+}
+
+echo "Time to first report for $INPUT (average of $RUNS runs)"
+bench "Default launch " java -Xshare:auto -cp build/classes Main "$INPUT" "$OUTPUT"
+bench "Packaged launch" scripts/run.sh "$INPUT" "$OUTPUT"
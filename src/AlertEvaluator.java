@@ -0,0 +1,212 @@
+import java.util.*;
+import java.time.*;
+
+/**
+ * The {@code AlertEvaluator} class evaluates the pending records of many
+ * patients in one batch. Instead of calling {@code Record#getAlert(char, Period)}
+ * on each record in turn, which dispatches across every record subclass and
+ * re-derives the age thresholds for every reading, it groups the records by
+ * vital type and by the patient's age group and sex. Each group is then passed
+ * to {@code VitalType#evaluateGroup}, which derives the thresholds once and
+ * checks the group in a tight loop over a single record type.
+ * 
+ * Age groups are one per pediatric year (0 to 12) plus one for adults, since
+ * pediatric blood pressure thresholds change every year. Records of vital
+ * types that are not grouped, and records of unregistered classes, are
+ * evaluated through {@code Record#getAlert(char, Period)}. The resulting alerts
+ * are identical to evaluating each record on its own.
+ */
+public class AlertEvaluator {
+    // Age in years of the adult age group, which stands for every older age
+    static final int ADULT_AGE = BloodPressureRecord.ADULT_AGE;
+
+    // Sexes in index order
+    private static final char[] SEXES = { 'M', 'F', 'X' };
+
+    // Number of age groups: one per pediatric year and one for adults
+    private static final int NUM_AGES = ADULT_AGE + 1;
+
+    // Number of (age group, sex) groups
+    private static final int NUM_GROUPS = NUM_AGES * SEXES.length;
+
+    // Number of possible vital type tags
+    private static final int NUM_TAGS = 128;
+
+    // Kind of records evaluated individually
+    private static final int OTHER = -1;
+
+    /**
+     * Evaluates every pending record of the given patients and stores the
+     * resulting alerts in each patient.
+     * 
+     * Precondition: {@code patients} is not null.
+     * Postcondition: Every record of every patient has been evaluated, with the
+     * same alerts as {@code Record#getAlert(char, Period)}.
+     * 
+     * @param patients the patients to evaluate
+     */
+    public static void evaluate(Collection<Patient> patients) {
+        evaluate(patients, null);
+    }
+
+    /**
+     * Evaluates every pending record of the given patients, stores the resulting
+     * alerts in each patient, and counts the alerts in the census statistics.
+     * 
+     * Precondition: {@code patients} is not null.
+     * Postcondition: Every record of every patient has been evaluated, with the
+     * same alerts as {@code Record#getAlert(char, Period)}, and each alert is
+     * counted in {@code statistics} if it is not null.
+     * 
+     * @param patients   the patients to evaluate
+     * @param statistics the statistics to count alerts in, or null to skip them
+     */
+    public static void evaluate(Collection<Patient> patients, CensusStatistics statistics) {
+        // Collect the patients with pending records and count those records
+        List<Patient> pending = new ArrayList<Patient>();
+        int numRecords = 0;
+
+        for (Patient patient : patients) {
+            int numPending = patient.pendingRecords().size();
+            if (numPending > 0) {
+                pending.add(patient);
+                numRecords += numPending;
+            }
+        }
+
+        if (numRecords == 0) {
+            return;
+        }
+
+        // Alert of each pending record, in patient and record order
+        String[] results = new String[numRecords];
+
+        // Grouped vital types, each evaluated as its own kind of record, and the
+        // kind of each vital type tag
+        List<VitalType> kinds = new ArrayList<VitalType>();
+        int[] kindsByTag = new int[NUM_TAGS];
+        Arrays.fill(kindsByTag, OTHER);
+
+        for (VitalType type : VitalRegistry.getTypes()) {
+            if (type.isGrouped()) {
+                kindsByTag[type.getTag()] = kinds.size();
+                kinds.add(type);
+            }
+        }
+
+        // Number of records of each kind per group, shifted by one so that prefix
+        // sums give the start of each group
+        int[][] starts = new int[kinds.size()][NUM_GROUPS + 1];
+        int[] groups = new int[pending.size()];
+        int slot = 0;
+
+        // First pass: assign each patient a group and count records per group,
+        // evaluating records of other vital types directly
+        for (int p = 0; p < pending.size(); p++) {
+            Patient patient = pending.get(p);
+            Period age = patient.getAge();
+            groups[p] = group(age.getYears(), patient.getSex());
+
+            for (Record record : patient.pendingRecords()) {
+                int kind = kindOf(record, kindsByTag);
+                if (kind == OTHER) {
+                    results[slot] = record.getAlert(patient.getSex(), age);
+                } else {
+                    starts[kind][groups[p] + 1]++;
+                }
+                slot++;
+            }
+        }
+
+        // Convert counts to the start index of each group
+        for (int kind = 0; kind < kinds.size(); kind++) {
+            for (int g = 0; g < NUM_GROUPS; g++) {
+                starts[kind][g + 1] += starts[kind][g];
+            }
+        }
+
+        // Second pass: place each record and its result slot by kind and group
+        Record[][] records = new Record[kinds.size()][];
+        int[][] slots = new int[kinds.size()][];
+        int[][] cursors = new int[kinds.size()][];
+
+        for (int kind = 0; kind < kinds.size(); kind++) {
+            records[kind] = new Record[starts[kind][NUM_GROUPS]];
+            slots[kind] = new int[starts[kind][NUM_GROUPS]];
+            cursors[kind] = Arrays.copyOf(starts[kind], NUM_GROUPS);
+        }
+
+        slot = 0;
+        for (int p = 0; p < pending.size(); p++) {
+            for (Record record : pending.get(p).pendingRecords()) {
+                int kind = kindOf(record, kindsByTag);
+                if (kind != OTHER) {
+                    int index = cursors[kind][groups[p]]++;
+                    records[kind][index] = record;
+                    slots[kind][index] = slot;
+                }
+                slot++;
+            }
+        }
+
+        // Evaluate each non-empty group with thresholds derived once per group
+        for (int g = 0; g < NUM_GROUPS; g++) {
+            int ageYears = g / SEXES.length;
+            char sex = SEXES[g % SEXES.length];
+
+            for (int kind = 0; kind < kinds.size(); kind++) {
+                if (starts[kind][g] < starts[kind][g + 1]) {
+                    kinds.get(kind).evaluateGroup(records[kind], slots[kind], starts[kind][g], starts[kind][g + 1],
+                            ageYears, sex, results);
+                }
+            }
+        }
+
+        // Store the alerts in each patient in record order
+        slot = 0;
+        for (Patient patient : pending) {
+            List<Record> pendingRecords = patient.pendingRecords();
+            int numPending = pendingRecords.size();
+
+            // Count the alerts in the census statistics, if enabled
+            if (statistics != null) {
+                Period age = patient.getAge();
+                for (int i = 0; i < numPending; i++) {
+                    if (!results[slot + i].isEmpty()) {
+                        statistics.addAlert(patient, pendingRecords.get(i), age);
+                    }
+                }
+            }
+
+            patient.commitAlerts(results, slot);
+            slot += numPending;
+        }
+    }
+
+    /**
+     * Returns the group of a patient's age and sex.
+     * 
+     * @param ageYears the age of the patient in years
+     * @param sex      the sex of the patient ('M', 'F', or 'X')
+     * @return the index of the group
+     */
+    private static int group(int ageYears, char sex) {
+        int age = Math.min(ageYears, ADULT_AGE);
+        int sexIndex = sex == 'M' ? 0 : sex == 'F' ? 1 : 2;
+        return age * SEXES.length + sexIndex;
+    }
+
+    /**
+     * Returns the kind of a record. Only records whose class is registered with a
+     * grouped vital type are grouped, so subclasses that override the thresholds
+     * are still evaluated through {@code Record#getAlert(char, Period)}.
+     * 
+     * @param record     the record to classify
+     * @param kindsByTag the kind of each vital type tag
+     * @return the kind of the record, or {@code OTHER}
+     */
+    private static int kindOf(Record record, int[] kindsByTag) {
+        VitalType type = VitalRegistry.forRecord(record);
+        return type == null ? OTHER : kindsByTag[type.getTag()];
+    }
+}
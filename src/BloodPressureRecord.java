@@ -7,6 +7,68 @@ import java.time.*;
  * normal ranges.
  */
 public class BloodPressureRecord extends Record {
+    // Vital type of blood pressure: one column of the form systolic/diastolic in
+    // mmHg, stored as two integers
+    public static final VitalType TYPE = new VitalType("Blood Pressure", 2, 2, BloodPressureRecord.class) {
+        @Override
+        public Record parse(LocalDate date, String field) {
+            // Split blood pressure into systolic and diastolic
+            String[] bloodPressure = field.split("/");
+            return new BloodPressureRecord(date, Integer.parseInt(bloodPressure[0]),
+                    Integer.parseInt(bloodPressure[1]));
+        }
+
+        @Override
+        public void store(Record record, long[] values, int offset) {
+            values[offset] = ((BloodPressureRecord) record).systolicBp;
+            values[offset + 1] = ((BloodPressureRecord) record).diastolicBp;
+        }
+
+        @Override
+        public Record load(LocalDate date, long[] values, int offset) {
+            return new BloodPressureRecord(date, (int) values[offset], (int) values[offset + 1]);
+        }
+
+        @Override
+        boolean isGrouped() {
+            return true;
+        }
+
+        @Override
+        void evaluateGroup(Record[] records, int[] slots, int from, int to, int ageYears, char sex,
+                String[] results) {
+            // Adult evaluation: age 13 and above
+            if (ageYears >= ADULT_AGE) {
+                for (int i = from; i < to; i++) {
+                    results[slots[i]] = ((BloodPressureRecord) records[i]).getAdultAlert();
+                }
+                return;
+            }
+
+            // Pediatric evaluation: age 12 and below, with the thresholds looked up
+            // once for the group
+            int hypotensionThreshold = hypotensionThreshold(ageYears);
+            int systolicHypertensionThreshold = systolicThresholds(sex)[ageYears];
+            int diastolicHypertensionThreshold = diastolicThresholds(sex)[ageYears];
+
+            for (int i = from; i < to; i++) {
+                results[slots[i]] = ((BloodPressureRecord) records[i]).getPediatricAlert(hypotensionThreshold,
+                        systolicHypertensionThreshold, diastolicHypertensionThreshold);
+            }
+        }
+    };
+
+    // Age in years from which adult thresholds apply
+    static final int ADULT_AGE = 13;
+
+    // Pediatric hypertension thresholds in mmHg, indexed by age in years (0 to 12)
+    private static final int[] MALE_SYSTOLIC_THRESHOLDS = { 104, 101, 104, 105, 107, 110, 109, 111, 113, 115, 117,
+            119, 120 };
+    private static final int[] MALE_DIASTOLIC_THRESHOLDS = { 56, 54, 58, 61, 64, 67, 73, 74, 75, 75, 76, 77, 78 };
+    private static final int[] FEMALE_SYSTOLIC_THRESHOLDS = { 104, 102, 106, 107, 108, 110, 108, 110, 112, 114, 116,
+            118, 120 };
+    private static final int[] FEMALE_DIASTOLIC_THRESHOLDS = { 56, 58, 62, 65, 67, 70, 73, 74, 75, 76, 77, 78, 78 };
+
     // Systolic blood pressure in mmHg
     private int systolicBp;
     // Diastolic blood pressure in mmHg
@@ -26,6 +88,18 @@ public class BloodPressureRecord extends Record {
         this.diastolicBp = diastolicBp;
     }
 
+    /**
+     * Returns the systolic blood pressure in mmHg.
+     * 
+     * Precondition: The record is initialized.
+     * Postcondition: The systolic blood pressure in mmHg is returned.
+     * 
+     * @return the systolic blood pressure in mmHg
+     */
+    public int getSystolicBp() {
+        return systolicBp;
+    }
+
     /**
      * Returns an alert message if the blood pressure is outside of the normal range
      * for the patient's age and sex. Adult values are based on AHA hypertension
@@ -45,52 +119,111 @@ public class BloodPressureRecord extends Record {
         int ageYears = age.getYears();
 
         // Adult evaluation: age 13 and above
-        if (ageYears >= 13) {
-            // Check for hypotension (<90/)
-            if (systolicBp < 90) {
-                return getDate() + " [Blood Pressure] Possible hypotension (" + systolicBp + "/" + diastolicBp
-                        + " mmHg)";
-            }
+        if (ageYears >= ADULT_AGE) {
+            return getAdultAlert();
+        }
 
-            // Check for hypertension stage 2 (≥140/ or /≥90)
-            if (systolicBp >= 140 || diastolicBp >= 90) {
-                return getDate() + " [Blood Pressure] Possible hypertension stage 2 (" + systolicBp + "/"
-                        + diastolicBp + " mmHg)";
-            }
+        // Pediatric evaluation: age 12 and below
+        return getPediatricAlert(hypotensionThreshold(ageYears), systolicThresholds(sex)[ageYears],
+                diastolicThresholds(sex)[ageYears]);
+    }
 
-            // Check for hypertension stage 1 (≥130/ or /≥80)
-            if (systolicBp >= 130 || diastolicBp >= 80) {
-                return getDate() + " [Blood Pressure] Possible hypertension stage 1 (" + systolicBp + "/"
-                        + diastolicBp + " mmHg)";
-            }
+    /**
+     * Returns the pediatric systolic hypotension threshold for the given age.
+     * 
+     * Precondition: {@code ageYears} is between 0 and 12.
+     * Postcondition: The hypotension threshold is returned in mmHg.
+     * 
+     * @param ageYears the age of the patient in years
+     * @return the systolic hypotension threshold
+     */
+    private static int hypotensionThreshold(int ageYears) {
+        // Calculate lower bound for systolic blood pressure based on age
+        return Math.min(70 + 2 * ageYears, 90);
+    }
 
-            // Check for elevated blood pressure (≥120 and <80)
-            if (systolicBp >= 120) {
-                return getDate() + " [Blood Pressure] Possible elevated blood pressure (" + systolicBp + "/"
-                        + diastolicBp + " mmHg)";
-            }
+    /**
+     * Returns the pediatric systolic hypertension thresholds for the given sex.
+     * 
+     * Precondition: None.
+     * Postcondition: The thresholds in mmHg, indexed by age in years (0 to 12),
+     * are returned.
+     * 
+     * @param sex the sex of the patient ('M', 'F', or 'X')
+     * @return the systolic hypertension thresholds by age
+     */
+    private static int[] systolicThresholds(char sex) {
+        return sex == 'M' ? MALE_SYSTOLIC_THRESHOLDS : FEMALE_SYSTOLIC_THRESHOLDS;
+    }
+
+    /**
+     * Returns the pediatric diastolic hypertension thresholds for the given sex.
+     * 
+     * Precondition: None.
+     * Postcondition: The thresholds in mmHg, indexed by age in years (0 to 12),
+     * are returned.
+     * 
+     * @param sex the sex of the patient ('M', 'F', or 'X')
+     * @return the diastolic hypertension thresholds by age
+     */
+    private static int[] diastolicThresholds(char sex) {
+        return sex == 'M' ? MALE_DIASTOLIC_THRESHOLDS : FEMALE_DIASTOLIC_THRESHOLDS;
+    }
+
+    /**
+     * Returns an alert message if the blood pressure is outside of the normal
+     * adult range, based on AHA hypertension guidelines.
+     * 
+     * Precondition: The patient is at least 13 years old.
+     * Postcondition: An alert is returned if the blood pressure is outside normal
+     * bounds; otherwise, an empty string is returned.
+     * 
+     * @return an alert if blood pressure is abnormal; otherwise an empty string
+     */
+    private String getAdultAlert() {
+        // Check for hypotension (<90/)
+        if (systolicBp < 90) {
+            return getDate() + " [Blood Pressure] Possible hypotension (" + systolicBp + "/" + diastolicBp
+                    + " mmHg)";
+        }
 
-            // Blood pressure is within the normal range
-            return "";
+        // Check for hypertension stage 2 (≥140/ or /≥90)
+        if (systolicBp >= 140 || diastolicBp >= 90) {
+            return getDate() + " [Blood Pressure] Possible hypertension stage 2 (" + systolicBp + "/"
+                    + diastolicBp + " mmHg)";
         }
 
-        // Pediatric evaluation: age 12 and below
-        // Calculate lower bound for systolic blood pressure based on age
-        int hypotensionThreshold = Math.min(70 + 2 * ageYears, 90);
-
-        // Calculate upper bound for blood pressure values based on sex and age
-        int systolicHypertensionThreshold, diastolicHypertensionThreshold;
-
-        if (sex == 'M') {
-            systolicHypertensionThreshold = new int[] { 104, 101, 104, 105, 107, 110, 109, 111, 113, 115, 117, 119,
-                    120 }[ageYears];
-            diastolicHypertensionThreshold = new int[] { 56, 54, 58, 61, 64, 67, 73, 74, 75, 75, 76, 77, 78 }[ageYears];
-        } else {
-            systolicHypertensionThreshold = new int[] { 104, 102, 106, 107, 108, 110, 108, 110, 112, 114, 116, 118,
-                    120 }[ageYears];
-            diastolicHypertensionThreshold = new int[] { 56, 58, 62, 65, 67, 70, 73, 74, 75, 76, 77, 78, 78 }[ageYears];
+        // Check for hypertension stage 1 (≥130/ or /≥80)
+        if (systolicBp >= 130 || diastolicBp >= 80) {
+            return getDate() + " [Blood Pressure] Possible hypertension stage 1 (" + systolicBp + "/"
+                    + diastolicBp + " mmHg)";
+        }
+
+        // Check for elevated blood pressure (≥120 and <80)
+        if (systolicBp >= 120) {
+            return getDate() + " [Blood Pressure] Possible elevated blood pressure (" + systolicBp + "/"
+                    + diastolicBp + " mmHg)";
         }
 
+        // Blood pressure is within the normal range
+        return "";
+    }
+
+    /**
+     * Returns an alert message if the blood pressure is outside of the normal
+     * pediatric range given by the thresholds for the patient's age and sex.
+     * 
+     * Precondition: The patient is 12 years old or younger.
+     * Postcondition: An alert is returned if the blood pressure is outside normal
+     * bounds; otherwise, an empty string is returned.
+     * 
+     * @param hypotensionThreshold           the systolic hypotension threshold
+     * @param systolicHypertensionThreshold  the systolic hypertension threshold
+     * @param diastolicHypertensionThreshold the diastolic hypertension threshold
+     * @return an alert if blood pressure is abnormal; otherwise an empty string
+     */
+    private String getPediatricAlert(int hypotensionThreshold, int systolicHypertensionThreshold,
+            int diastolicHypertensionThreshold) {
         // Check for pediatric hypotension
         if (systolicBp < hypotensionThreshold) {
             return getDate() + " [Blood Pressure] Possible hypotension (" + systolicBp + "/" + diastolicBp
@@ -0,0 +1,200 @@
+import java.util.*;
+import java.time.*;
+
+/**
+ * The {@code CensusStatistics} class aggregates population-level statistics
+ * from a stream of vital records, in memory that does not grow with the number
+ * of records:
+ * - Alert rates per vital type, by age band and sex
+ * - The percentile distribution of systolic blood pressure, kept in a
+ * histogram with one bucket per mmHg
+ * - Daily fever counts, kept exactly with one counter per day with a fever
+ * 
+ * Readings are added with {@code add(Patient, Record, Period)} as records are
+ * ingested. Alerts are added separately with
+ * {@code addAlert(Patient, Record, Period)} wherever the record is evaluated,
+ * so that no record is evaluated twice. Every record is added by the single
+ * thread reading the input file.
+ */
+public class CensusStatistics {
+    // Upper bounds (exclusive) of the pediatric age bands in years, matching the
+    // age buckets used by the vital record thresholds
+    private static final int[] AGE_BAND_LIMITS = { 1, 3, 6, 13 };
+
+    // Display names of the age bands
+    private static final String[] AGE_BAND_NAMES = { "<1", "1-2", "3-5", "6-12", "13+" };
+
+    // Sexes in index order
+    private static final char[] SEXES = { 'M', 'F', 'X' };
+
+    // Number of possible vital type tags
+    private static final int NUM_TAGS = 128;
+
+    // Largest systolic blood pressure with its own histogram bucket; higher
+    // readings are counted in the last bucket
+    private static final int MAX_SYSTOLIC = 300;
+
+    // Number of readings and alerts per vital type tag, age band, and sex
+    private long[][][] readings = new long[NUM_TAGS][AGE_BAND_NAMES.length][SEXES.length];
+    private long[][][] alerts = new long[NUM_TAGS][AGE_BAND_NAMES.length][SEXES.length];
+
+    // Number of systolic readings per mmHg
+    private long[] systolic = new long[MAX_SYSTOLIC + 1];
+    private long numSystolic; // Total number of systolic readings
+
+    // Number of fever readings per epoch day, in date order
+    private TreeMap<Long, Long> fevers = new TreeMap<Long, Long>();
+
+    /**
+     * Adds a single vital record of a patient to the statistics. Its alert, if
+     * any, is added separately with {@code addAlert(Patient, Record, Period)}.
+     * 
+     * Precondition: {@code patient}, {@code record}, and {@code age} are not null.
+     * Postcondition: The record is counted in every statistic it applies to.
+     * 
+     * @param patient the patient the record belongs to
+     * @param record  the vital record to add
+     * @param age     the age of the patient
+     */
+    public void add(Patient patient, Record record, Period age) {
+        VitalType type = VitalRegistry.forRecord(record);
+
+        // Count the reading for its vital type
+        if (type != null) {
+            readings[type.getTag()][ageBand(age.getYears())][sexIndex(patient.getSex())]++;
+        }
+
+        // Record systolic blood pressure in the histogram
+        if (record instanceof BloodPressureRecord) {
+            int value = ((BloodPressureRecord) record).getSystolicBp();
+            systolic[Math.max(0, Math.min(value, MAX_SYSTOLIC))]++;
+            numSystolic++;
+        }
+
+        // Count fevers by day
+        if (record instanceof TemperatureRecord
+                && ((TemperatureRecord) record).getTemperature() >= TemperatureRecord.FEVER_THRESHOLD) {
+            fevers.merge(record.getDate().toEpochDay(), 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Counts the alert of a vital record previously added with
+     * {@code add(Patient, Record, Period)}.
+     * 
+     * Precondition: {@code patient}, {@code record}, and {@code age} are not null.
+     * The record has an alert.
+     * Postcondition: The alert is counted in the alert rate of the record's vital
+     * type.
+     * 
+     * @param patient the patient the record belongs to
+     * @param record  the vital record with an alert
+     * @param age     the age of the patient
+     */
+    public void addAlert(Patient patient, Record record, Period age) {
+        VitalType type = VitalRegistry.forRecord(record);
+
+        if (type != null) {
+            alerts[type.getTag()][ageBand(age.getYears())][sexIndex(patient.getSex())]++;
+        }
+    }
+
+    /**
+     * Returns the systolic blood pressure at the given percentile.
+     * 
+     * Precondition: {@code percentile} is between 0 and 100.
+     * Postcondition: The smallest value such that at least {@code percentile}
+     * percent of readings are at or below it is returned, or 0 if there are no
+     * readings.
+     * 
+     * @param percentile the percentile between 0 and 100
+     * @return the systolic blood pressure at the percentile in mmHg
+     */
+    public int systolicPercentile(double percentile) {
+        if (numSystolic == 0) {
+            return 0;
+        }
+
+        // Walk the histogram until the target rank is reached
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * numSystolic));
+        long seen = 0;
+
+        for (int value = 0; value < MAX_SYSTOLIC; value++) {
+            seen += systolic[value];
+            if (seen >= rank) {
+                return value;
+            }
+        }
+
+        return MAX_SYSTOLIC;
+    }
+
+    /**
+     * Generates a report of the statistics.
+     * 
+     * Precondition: None.
+     * Postcondition: A formatted report is returned as a {@code String}.
+     * 
+     * @return the formatted report as a {@code String}
+     */
+    public String generateReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("=========================\n    CENSUS STATISTICS    \n=========================\n");
+
+        // Section for alert rates, skipping groups without readings
+        report.append("\n-- Alert Rates --\n");
+        for (VitalType type : VitalRegistry.getTypes()) {
+            for (int band = 0; band < AGE_BAND_NAMES.length; band++) {
+                for (int sex = 0; sex < SEXES.length; sex++) {
+                    long total = readings[type.getTag()][band][sex];
+                    if (total > 0) {
+                        long count = alerts[type.getTag()][band][sex];
+                        report.append(type.getName()).append(", age ").append(AGE_BAND_NAMES[band]).append(", ")
+                                .append(SEXES[sex]).append(": ").append(count).append("/").append(total)
+                                .append(String.format(" (%.1f%%)", 100.0 * count / total)).append("\n");
+                    }
+                }
+            }
+        }
+
+        // Section for the systolic blood pressure distribution
+        report.append("\n-- Systolic Blood Pressure --\n");
+        report.append("Readings: ").append(numSystolic).append("\n");
+        for (int percentile : new int[] { 5, 25, 50, 75, 95, 99 }) {
+            report.append("p").append(percentile).append(": ").append(systolicPercentile(percentile))
+                    .append(" mmHg\n");
+        }
+
+        // Section for daily fever counts, listing only days with fevers
+        report.append("\n-- Daily Fever Counts --\n");
+        fevers.forEach((day, count) -> report.append(LocalDate.ofEpochDay(day)).append(": ").append(count)
+                .append("\n"));
+
+        report.append("\n-------------------------");
+        return report.toString();
+    }
+
+    /**
+     * Returns the index of the age band containing the given age.
+     * 
+     * @param ageYears the age in years
+     * @return the index of the age band
+     */
+    private static int ageBand(int ageYears) {
+        int band = 0;
+        while (band < AGE_BAND_LIMITS.length && ageYears >= AGE_BAND_LIMITS[band]) {
+            band++;
+        }
+        return band;
+    }
+
+    /**
+     * Returns the index of a sex.
+     * 
+     * @param sex the sex ('M', 'F', or 'X')
+     * @return the index of the sex
+     */
+    private static int sexIndex(char sex) {
+        return sex == 'M' ? 0 : sex == 'F' ? 1 : 2;
+    }
+}
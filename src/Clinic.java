@@ -12,11 +12,25 @@ import java.time.*;
  * - PATIENT,<ID>,<Name>,<Sex (M, F, or X)>,<Date of Birth (YYYY-MM-DD)>
  * - RECORD,<ID>,<Date (YYYY-MM-DD)>,<Heart Rate>,<Systolic/Diastolic Blood
  * Pressure>,<Temperature (in celsius)>,<Respiratory Rate>
+ * 
+ * The vital columns of a RECORD entry follow the order of the vital types in
+ * {@code VitalRegistry}; any additionally registered vitals follow the
+ * respiratory rate.
  */
 
 public class Clinic {
+    // Index of the first vital column of a RECORD entry
+    private static final int FIRST_VITAL_COLUMN = 3;
+
     // Map of patients using ID as the key
     private Map<Long, Patient> patients;
+    // Whether patients evaluate alerts on first access instead of on ingestion
+    private boolean lazyAlerts;
+    // Vital types in the order of the vital columns of a RECORD entry
+    private VitalType[] columnPlan = VitalRegistry.getTypes();
+    // Census statistics fed with every ingested record and evaluated alert, or
+    // null if disabled
+    private CensusStatistics statistics;
 
     /**
      * Constructs a {@code Clinic} by reading and parsing the input file.
@@ -28,32 +42,55 @@ public class Clinic {
      * @throws RuntimeException if file reading fails
      */
     public Clinic(File file) {
+        this(file, false);
+    }
+
+    /**
+     * Constructs a {@code Clinic} by reading and parsing the input file, with the
+     * given alert evaluation mode. With lazy alerts, records are stored without
+     * being evaluated, so loads that never need alerts skip that work entirely.
+     * 
+     * Precondition: The input file exists and follows the specified format.
+     * Postcondition: Patient data and records are loaded into {@code patients}.
+     * 
+     * @param file       the input file containing patient and record entries
+     * @param lazyAlerts whether alerts are evaluated on first access instead of on
+     *                   ingestion
+     * @throws RuntimeException if file reading fails
+     */
+    public Clinic(File file, boolean lazyAlerts) {
+        this(file, lazyAlerts, null);
+    }
+
+    /**
+     * Constructs a {@code Clinic} by reading and parsing the input file, with the
+     * given alert evaluation mode, feeding every ingested record into the given
+     * census statistics. Each alert is counted where its record is evaluated: on
+     * ingestion with eager alerts, or in {@code evaluateAlerts()} with lazy
+     * alerts, which must then run before the alert rates are read.
+     * 
+     * Precondition: The input file exists and follows the specified format.
+     * Postcondition: Patient data and records are loaded into {@code patients}
+     * and added to {@code statistics}.
+     * 
+     * @param file       the input file containing patient and record entries
+     * @param lazyAlerts whether alerts are evaluated on first access instead of on
+     *                   ingestion
+     * @param statistics the statistics to feed, or null to disable them
+     * @throws RuntimeException if file reading fails
+     */
+    public Clinic(File file, boolean lazyAlerts, CensusStatistics statistics) {
         patients = new HashMap<>();
+        this.lazyAlerts = lazyAlerts;
+        this.statistics = statistics;
 
         try {
             BufferedReader reader = new BufferedReader(new FileReader(file));
             String line;
 
-            // Read each line from the file
+            // Read and handle each line from the file
             while ((line = reader.readLine()) != null) {
-                // Skip empty lines
-                if (line.isEmpty()) {
-                    continue;
-                }
-
-                // Split the line into components using a comma as the delimiter
-                String[] parts = line.split(",");
-                String type = parts[0];
-
-                // Dispatch the line to the appropriate handler based on type
-                if (type.equals("PATIENT")) {
-                    handlePatient(parts, line);
-                } else if (type.equals("RECORD")) {
-                    handleRecord(parts, line);
-                } else {
-                    // Issue a warning if the line type is not recognized
-                    System.out.println("[WARN] Invalid format, skipping entry: " + line);
-                }
+                handleLine(line);
             }
 
             reader.close();
@@ -63,6 +100,102 @@ public class Clinic {
         }
     }
 
+    /**
+     * Constructs an empty {@code Clinic} with no patients and the given alert
+     * evaluation mode. Used by loaders that do not read the text input format,
+     * such as {@code VitalsArchive}.
+     * 
+     * Precondition: None.
+     * Postcondition: {@code patients} is initialized and empty.
+     * 
+     * @param lazyAlerts whether alerts are evaluated on first access instead of on
+     *                   ingestion
+     */
+    Clinic(boolean lazyAlerts) {
+        patients = new HashMap<>();
+        this.lazyAlerts = lazyAlerts;
+    }
+
+    /**
+     * Adds a patient to {@code patients}.
+     * 
+     * Precondition: {@code patient} is not null.
+     * Postcondition: The patient is added to {@code patients}, or a warning is
+     * issued if the ID is a duplicate.
+     * 
+     * @param patient the patient to add
+     */
+    void addPatient(Patient patient) {
+        // If ID already exists, issue a warning and skip the patient
+        if (patients.containsKey(patient.getId())) {
+            System.out.println("[WARN] Duplicate patient ID " + patient.getId() + ", skipping patient");
+            return;
+        }
+
+        patients.put(patient.getId(), patient);
+    }
+
+    /**
+     * Writes every patient and their records to a compact binary archive that can
+     * be loaded with {@code VitalsArchive#read(File)}.
+     * 
+     * Precondition: The patients and their records are initialized.
+     * Postcondition: The archive is written to {@code archiveFile}.
+     * 
+     * @param archiveFile the file to write the archive to
+     * @throws RuntimeException if writing the archive fails
+     */
+    public void writeArchive(File archiveFile) {
+        VitalsArchive.write(patients.values(), archiveFile);
+    }
+
+    /**
+     * Returns the patient with the given ID.
+     * 
+     * Precondition: None.
+     * Postcondition: The matching {@code Patient} object is returned, or null if
+     * no patient has the given ID.
+     * 
+     * @param id the ID of the patient
+     * @return the patient with the given ID, or null if it does not exist
+     */
+    public Patient getPatient(long id) {
+        return patients.get(id);
+    }
+
+    /**
+     * Parses a single line in the input format and dispatches it to the
+     * appropriate handler.
+     * 
+     * Precondition: {@code line} is not null.
+     * Postcondition: The entry is added to the clinic, or a warning is issued if
+     * it is invalid. Empty lines are ignored.
+     * 
+     * @param line the line to handle
+     * @return true if the entry was added; false if it was empty or rejected
+     */
+    public boolean handleLine(String line) {
+        // Skip empty lines
+        if (line.isEmpty()) {
+            return false;
+        }
+
+        // Split the line into components using a comma as the delimiter
+        String[] parts = line.split(",");
+        String type = parts[0];
+
+        // Dispatch the line to the appropriate handler based on type
+        if (type.equals("PATIENT")) {
+            return handlePatient(parts, line);
+        } else if (type.equals("RECORD")) {
+            return handleRecord(parts, line);
+        } else {
+            // Issue a warning if the line type is not recognized
+            System.out.println("[WARN] Invalid format, skipping entry: " + line);
+            return false;
+        }
+    }
+
     /**
      * Parses a PATIENT entry and adds it to {@code patients}.
      * 
@@ -72,8 +205,9 @@ public class Clinic {
      * 
      * @param parts the components of the line as a {@code String} array
      * @param line  the original input line (used for error reporting)
+     * @return true if the patient was added; false if the entry was rejected
      */
-    private void handlePatient(String[] parts, String line) {
+    private boolean handlePatient(String[] parts, String line) {
         try {
             // Parse fields: ID, name, sex, and date of birth
             long id = Long.parseLong(parts[1]);
@@ -84,14 +218,16 @@ public class Clinic {
             // If ID already exists, issue a warning and skip the patient
             if (patients.containsKey(id)) {
                 System.out.println("[WARN] Duplicate patient ID " + id + ", skipping entry: " + line);
-                return;
+                return false;
             }
 
             // Add new Patient object into patients
-            patients.put(id, new Patient(id, name, sex, dob));
+            patients.put(id, new Patient(id, name, sex, dob, lazyAlerts));
+            return true;
         } catch (Exception e) {
             // Issue a warning for any parsing errors
             System.out.println("[WARN] Invalid format, skipping entry: " + line);
+            return false;
         }
     }
 
@@ -106,34 +242,27 @@ public class Clinic {
      * 
      * @param parts the components of the line as a {@code String} array
      * @param line  the original input line (used for error reporting)
+     * @return true if the records were added; false if the entry was rejected
      */
-    private void handleRecord(String[] parts, String line) {
-        // Declare patient ID, date of measurement, and vital measurements
+    private boolean handleRecord(String[] parts, String line) {
+        // Declare patient ID, date of measurement, and vital records
         long id;
         LocalDate date;
-        int heartRate, systolicBp, diastolicBp, respiratoryRate;
-        double temperature;
+        Record[] records = new Record[columnPlan.length];
 
         try {
             // Parse patient ID and date of measurement
             id = Long.parseLong(parts[1]);
             date = LocalDate.parse(parts[2]);
 
-            // Parse heart rate
-            heartRate = Integer.parseInt(parts[3]);
-
-            // Split blood pressure into systolic and diastolic
-            String[] bloodPressure = parts[4].split("/");
-            systolicBp = Integer.parseInt(bloodPressure[0]);
-            diastolicBp = Integer.parseInt(bloodPressure[1]);
-
-            // Parse temperature and respiratory rate
-            temperature = Double.parseDouble(parts[5]);
-            respiratoryRate = Integer.parseInt(parts[6]);
+            // Parse each vital column with the parser of its vital type
+            for (int i = 0; i < columnPlan.length; i++) {
+                records[i] = columnPlan[i].parse(date, parts[FIRST_VITAL_COLUMN + i]);
+            }
         } catch (Exception e) {
             // Issue a warning for any parsing errors
             System.out.println("[WARN] Invalid format, skipping entry: " + line);
-            return;
+            return false;
         }
 
         // Retrive the corresponding Patient object
@@ -142,14 +271,33 @@ public class Clinic {
         // Issue a warning if the patient does not exist
         if (patient == null) {
             System.out.println("[WARN] Unknown patient ID " + id + ", skipping entry: " + line);
-            return;
+            return false;
+        }
+
+        // Add each Record object to the patient's list of records
+        if (statistics == null) {
+            for (Record record : records) {
+                patient.addRecord(record);
+            }
+            return true;
+        }
+
+        // Otherwise also feed the census statistics. Eager patients evaluate each
+        // record as it is added, so its alert is counted here from the change in
+        // the alert count; alerts of lazy patients are counted when they are
+        // evaluated in batch by evaluateAlerts()
+        Period age = patient.getAge();
+        for (Record record : records) {
+            int numAlerts = lazyAlerts ? 0 : patient.numAlerts();
+            patient.addRecord(record);
+            statistics.add(patient, record, age);
+
+            if (!lazyAlerts && patient.numAlerts() > numAlerts) {
+                statistics.addAlert(patient, record, age);
+            }
         }
 
-        // Create and add each Record object to the patient's list of records
-        patient.addRecord(new HeartRateRecord(date, heartRate));
-        patient.addRecord(new BloodPressureRecord(date, systolicBp, diastolicBp));
-        patient.addRecord(new TemperatureRecord(date, temperature));
-        patient.addRecord(new RespiratoryRateRecord(date, respiratoryRate));
+        return true;
     }
 
     /**
@@ -166,7 +314,7 @@ public class Clinic {
         report.append("=========================\n      CLINIC REPORT      \n=========================");
 
         // Sort patients by number of alerts in descending order
-        List<Patient> sortedList = Clinic.sort(new ArrayList<Patient>(patients.values()));
+        List<Patient> sortedList = rankPatients();
 
         // Append each patient's report to the overall report
         sortedList.forEach(patient -> report.append("\n\n").append(patient.generateReport()));
@@ -174,6 +322,73 @@ public class Clinic {
         return report.toString();
     }
 
+    /**
+     * Evaluates the alerts of every record not yet evaluated in one batch with
+     * {@code AlertEvaluator}, grouping records by vital type, age, and sex. Only
+     * lazy patients have such records, and the batch returns immediately when
+     * there are none; reports call this before ranking patients. The alerts are
+     * also counted in the census statistics, if enabled.
+     * 
+     * Precondition: The patients and their records are initialized.
+     * Postcondition: Every record of every patient has been evaluated.
+     */
+    public void evaluateAlerts() {
+        AlertEvaluator.evaluate(patients.values(), statistics);
+    }
+
+    /**
+     * Returns every patient sorted by the number of alerts in descending order, in
+     * the same order as {@code generateReport()}.
+     * 
+     * Precondition: The patients and their records are initialized.
+     * Postcondition: A new sorted list is returned.
+     * 
+     * @return the list of patients sorted in descending order by alert count
+     */
+    public List<Patient> rankPatients() {
+        evaluateAlerts();
+        return Clinic.sort(new ArrayList<Patient>(patients.values()));
+    }
+
+    /**
+     * Generates a report of only the patients whose alerts changed since the
+     * report that last committed to the same state file, with their rank
+     * movement. The state file is updated for the next run only when
+     * {@code DeltaReport#commit()} is called after delivering the report.
+     * 
+     * Precondition: The patients and their records are initialized.
+     * {@code stateFile} is not null.
+     * Postcondition: A delta report holding the current alert state of every
+     * patient is returned; {@code stateFile} is unchanged.
+     * 
+     * @param stateFile the file holding the alert state of the previous run
+     * @return the delta report
+     * @throws RuntimeException if the state file cannot be read
+     */
+    public DeltaReport generateDeltaReport(File stateFile) {
+        return DeltaReport.generate(rankPatients(), stateFile);
+    }
+
+    /**
+     * Writes the same report as {@code generateReport()} directly to a file using
+     * an external-memory sort, so that the rendered sections never need to fit in
+     * memory at once. The patients and their records are already loaded, so the
+     * heap budget only bounds the sort; {@code VitalsArchive#writeReport} also
+     * avoids loading the patients of an archive.
+     * 
+     * Precondition: The patients and their records are initialized.
+     * {@code heapBudget} is positive.
+     * Postcondition: The formatted report is written to {@code outputFile}.
+     * 
+     * @param outputFile the file to write the report to
+     * @param heapBudget the approximate number of heap bytes available for sorting
+     * @throws RuntimeException if writing the report fails
+     */
+    public void writeReport(File outputFile, long heapBudget) {
+        evaluateAlerts();
+        new ExternalReportWriter(heapBudget).write(patients.values(), outputFile);
+    }
+
     /**
      * Recursively sorts a list of {@code Patient} objects by the number of abnormal
      * readings (alerts) in descending order, using merge sort.
@@ -0,0 +1,320 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import com.sun.net.httpserver.*;
+
+/**
+ * The {@code ClinicServer} class serves reports from a resident {@code Clinic}
+ * over HTTP on the loopback interface, so that consumers do not need to re-read
+ * the input file for every query.
+ * 
+ * Endpoints:
+ * - GET /patients/<ID>: the report of a single patient
+ * - GET /top?n=<N>: the clinic report limited to the N patients with the most
+ * alerts (all patients if {@code n} is omitted)
+ * - POST /records: adds entries in the input file format, one per line, and
+ * reports how many were accepted and rejected
+ * 
+ * Rendered reports are cached, and the ranking is cached once as the list of
+ * patient reports in ranked order, which each top-N request slices. Adding a
+ * record invalidates the cached report of its patient and the cached ranking,
+ * since any patient's alert count may change the order.
+ */
+public class ClinicServer {
+    // Report header, identical to the clinic report
+    private static final String HEADER = "=========================\n      CLINIC REPORT      \n=========================";
+
+    // Maximum number of queued incoming connections
+    private static final int BACKLOG = 1024;
+
+    private Clinic clinic; // Resident clinic; also used as the lock for reads and writes
+    private HttpServer server; // Underlying HTTP server
+    private ExecutorService executor; // Executor handling requests
+    private Map<Long, String> reports = new ConcurrentHashMap<Long, String>(); // Cached patient reports by ID
+    private volatile List<String> ranking; // Cached patient reports in ranked order, or null if invalidated
+
+    /**
+     * Constructs a {@code ClinicServer} for the given clinic, bound to the given
+     * port on the loopback interface.
+     * 
+     * Precondition: {@code clinic} is not null. {@code port} is a valid port.
+     * Postcondition: A new server is initialized but not yet started.
+     * 
+     * @param clinic the clinic to serve
+     * @param port   the port to listen on
+     * @throws RuntimeException if the server cannot be bound to the port
+     */
+    public ClinicServer(Clinic clinic, int port) {
+        this.clinic = clinic;
+
+        // Disable Nagle's algorithm; otherwise small responses on a kept-alive
+        // connection wait for the client's delayed ACK (about 40 ms each)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        } catch (IOException e) {
+            // Throw RuntimeException if the port cannot be bound
+            throw new RuntimeException("Error starting server: " + e.getMessage());
+        }
+
+        server.createContext("/patients/", this::handlePatient);
+        server.createContext("/top", this::handleTop);
+        server.createContext("/records", this::handleRecords);
+
+        executor = newExecutor();
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts accepting requests.
+     * 
+     * Precondition: The server has not been started.
+     * Postcondition: The server is listening for requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and releases the request threads.
+     * 
+     * Precondition: The server has been started.
+     * Postcondition: The server is stopped.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     * 
+     * Precondition: None.
+     * Postcondition: The bound port of the server is returned.
+     * 
+     * @return the port of the server
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Handles GET /patients/<ID> by returning the patient's report.
+     * 
+     * Precondition: {@code exchange} is a request to /patients/.
+     * Postcondition: The patient's report is sent, rendering and caching it on a
+     * miss, or an error status is sent if the request is invalid.
+     * 
+     * @param exchange the HTTP request and response
+     * @throws IOException if sending the response fails
+     */
+    private void handlePatient(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            send(exchange, 405, "Method not allowed");
+            return;
+        }
+
+        // Parse the patient ID from the path
+        long id;
+        try {
+            id = Long.parseLong(exchange.getRequestURI().getPath().substring("/patients/".length()));
+        } catch (NumberFormatException e) {
+            send(exchange, 400, "Invalid patient ID");
+            return;
+        }
+
+        // Serve from the cache, rendering the report on a miss
+        String report = reports.get(id);
+        if (report == null) {
+            synchronized (clinic) {
+                Patient patient = clinic.getPatient(id);
+                if (patient != null) {
+                    report = reports.computeIfAbsent(id, key -> patient.generateReport());
+                }
+            }
+        }
+
+        if (report == null) {
+            send(exchange, 404, "Unknown patient ID " + id);
+        } else {
+            send(exchange, 200, report);
+        }
+    }
+
+    /**
+     * Handles GET /top?n=<N> by returning the report of the N patients with the
+     * most alerts.
+     * 
+     * Precondition: {@code exchange} is a request to /top.
+     * Postcondition: The report of the first N ranked patients is sent, rendering
+     * and caching the ranking on a miss, or an error status is sent if the
+     * request is invalid.
+     * 
+     * @param exchange the HTTP request and response
+     * @throws IOException if sending the response fails
+     */
+    private void handleTop(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            send(exchange, 405, "Method not allowed");
+            return;
+        }
+
+        // Parse the number of patients from the n parameter of the query,
+        // defaulting to all
+        int n = Integer.MAX_VALUE;
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("n=")) {
+                    try {
+                        n = Integer.parseInt(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        n = -1;
+                    }
+                }
+            }
+        }
+        if (n < 0) {
+            send(exchange, 400, "Invalid number of patients");
+            return;
+        }
+
+        // Take the cached ranking, rendering it on a miss
+        List<String> ranked = ranking;
+        if (ranked == null) {
+            synchronized (clinic) {
+                if (ranking == null) {
+                    ranking = renderRanking();
+                }
+                ranked = ranking;
+            }
+        }
+
+        // Append the first N patient reports
+        StringBuilder report = new StringBuilder(HEADER);
+        for (int i = 0; i < ranked.size() && i < n; i++) {
+            report.append("\n\n").append(ranked.get(i));
+        }
+
+        send(exchange, 200, report.toString());
+    }
+
+    /**
+     * Handles POST /records by adding each line of the body to the clinic and
+     * invalidating the affected cached reports.
+     * 
+     * Precondition: {@code exchange} is a request to /records.
+     * Postcondition: Every valid entry is added to the clinic, the cached reports
+     * it affects are invalidated, and the numbers of accepted and rejected
+     * entries are sent.
+     * 
+     * @param exchange the HTTP request and response
+     * @throws IOException if reading the request or sending the response fails
+     */
+    private void handleRecords(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            send(exchange, 405, "Method not allowed");
+            return;
+        }
+
+        // Read the entries from the request body
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String[] lines = body.split("\r?\n");
+        int numAccepted = 0;
+        int numRejected = 0;
+
+        synchronized (clinic) {
+            for (String line : lines) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                // Count the entry as rejected if the clinic skipped it
+                if (!clinic.handleLine(line)) {
+                    numRejected++;
+                    continue;
+                }
+                numAccepted++;
+
+                // Invalidate the cached report of the affected patient
+                String[] parts = line.split(",", 3);
+                if (parts.length > 1) {
+                    try {
+                        reports.remove(Long.parseLong(parts[1]));
+                    } catch (NumberFormatException e) {
+                        // Accepted entries always have a numeric ID
+                    }
+                }
+            }
+
+            // Any new entry may change the ranking
+            if (numAccepted > 0) {
+                ranking = null;
+            }
+        }
+
+        send(exchange, 200, "Accepted " + numAccepted + " entries, rejected " + numRejected);
+    }
+
+    /**
+     * Renders the report of every patient in ranked order, reusing cached patient
+     * reports.
+     * 
+     * Precondition: The caller holds the lock on {@code clinic}.
+     * Postcondition: A read-only list of patient reports sorted by alert count in
+     * descending order is returned.
+     * 
+     * @return the list of patient reports in ranked order
+     */
+    private List<String> renderRanking() {
+        List<String> ranked = new ArrayList<String>();
+
+        for (Patient patient : clinic.rankPatients()) {
+            ranked.add(reports.computeIfAbsent(patient.getId(), key -> patient.generateReport()));
+        }
+
+        return Collections.unmodifiableList(ranked);
+    }
+
+    /**
+     * Sends a plain text response.
+     * 
+     * Precondition: No response has been sent for {@code exchange}.
+     * Postcondition: The response is sent and the exchange is closed.
+     * 
+     * @param exchange the HTTP request and response
+     * @param status   the HTTP status code
+     * @param body     the response body
+     * @throws IOException if sending the response fails
+     */
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    /**
+     * Creates the executor for request handling: one virtual thread per request
+     * when the runtime supports them (Java 21 and later), otherwise a cached pool
+     * of platform threads.
+     * 
+     * Precondition: None.
+     * Postcondition: A new executor is returned.
+     * 
+     * @return the executor for request handling
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * The {@code DeltaReport} class generates a report of only the patients whose
+ * alerts changed since the previous run. Each run stores a fingerprint of
+ * every patient's alert state in a state file: the number of alerts, a 64-bit
+ * hash of the alerts, and the patient's rank in the report. The next run
+ * compares against those fingerprints, so unchanged patients are never
+ * rendered.
+ * 
+ * Changed and new patients are reported with their rank movement, and patients
+ * missing from the current run are listed as removed. If the state file does
+ * not exist, every patient is reported as new.
+ * 
+ * Generating a report does not change the state file. Once the report has been
+ * delivered, {@code commit()} stores the fingerprints of this run, so a failed
+ * delivery reports the same changes again on the next run.
+ * 
+ * State file layout:
+ * - Header: magic number, version, number of patients
+ * - Patient: ID, number of alerts, alert hash, rank
+ */
+public class DeltaReport {
+    // Magic number identifying a state file ("CLDS")
+    private static final int MAGIC = 0x434C4453;
+
+    // Current state file format version
+    private static final int VERSION = 1;
+
+    private String report; // Formatted delta report
+    private long[][] fingerprints; // ID, alert count, alert hash, and rank of each patient in this run
+    private File stateFile; // File holding the fingerprints of the previous run
+
+    /**
+     * Constructs a {@code DeltaReport} object with the specified report and
+     * fingerprints.
+     * 
+     * @param report       the formatted delta report
+     * @param fingerprints the fingerprints of this run
+     * @param stateFile    the file to store the fingerprints in
+     */
+    private DeltaReport(String report, long[][] fingerprints, File stateFile) {
+        this.report = report;
+        this.fingerprints = fingerprints;
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * Generates a delta report for the ranked patients against the state file.
+     * The state file is not changed until {@code commit()} is called.
+     * 
+     * Precondition: {@code ranked} is sorted in report order.
+     * {@code stateFile} is not null.
+     * Postcondition: A delta report of the changed, new, and removed patients is
+     * returned, holding the fingerprints of this run.
+     * 
+     * @param ranked    the patients in report order
+     * @param stateFile the file holding the fingerprints of the previous run
+     * @return the delta report
+     * @throws RuntimeException if the state file cannot be read
+     */
+    public static DeltaReport generate(List<Patient> ranked, File stateFile) {
+        // Fingerprints of the previous run by patient ID: alert count, alert hash,
+        // and rank
+        Map<Long, long[]> previous = stateFile.exists() ? readState(stateFile) : new HashMap<Long, long[]>();
+
+        // Fingerprints of this run in report order
+        long[][] current = new long[ranked.size()][];
+
+        StringBuilder sections = new StringBuilder();
+        int numChanged = 0;
+        int numNew = 0;
+
+        for (int i = 0; i < ranked.size(); i++) {
+            Patient patient = ranked.get(i);
+            int rank = i + 1;
+            current[i] = new long[] { patient.getId(), patient.numAlerts(), patient.alertHash(), rank };
+
+            // Skip patients whose alerts are unchanged, regardless of rank
+            long[] fingerprint = previous.remove(patient.getId());
+            if (fingerprint != null && fingerprint[0] == current[i][1] && fingerprint[1] == current[i][2]) {
+                continue;
+            }
+
+            // Append the section with the patient's rank movement
+            sections.append("\n\nRank: ").append(rank);
+            if (fingerprint == null) {
+                sections.append(" (new)");
+                numNew++;
+            } else {
+                sections.append(" (was ").append(fingerprint[2]).append(")");
+                numChanged++;
+            }
+            sections.append("\n").append(patient.generateReport());
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append("=========================\n      DELTA REPORT       \n=========================\n");
+        report.append("Changed: ").append(numChanged).append(", New: ").append(numNew).append(", Removed: ")
+                .append(previous.size()).append(", Unchanged: ")
+                .append(ranked.size() - numChanged - numNew);
+        report.append(sections);
+
+        // Section for patients missing from this run, in their previous rank order
+        if (!previous.isEmpty()) {
+            List<Map.Entry<Long, long[]>> removed = new ArrayList<Map.Entry<Long, long[]>>(previous.entrySet());
+            removed.sort((a, b) -> Long.compare(a.getValue()[2], b.getValue()[2]));
+
+            report.append("\n\n-- Removed Patients --\n");
+            for (Map.Entry<Long, long[]> entry : removed) {
+                report.append("Patient ").append(entry.getKey()).append(" (was ").append(entry.getValue()[2])
+                        .append(")\n");
+            }
+            report.append("\n-------------------------");
+        }
+
+        return new DeltaReport(report.toString(), current, stateFile);
+    }
+
+    /**
+     * Returns the formatted delta report.
+     * 
+     * @return the formatted delta report as a {@code String}
+     */
+    public String getReport() {
+        return report;
+    }
+
+    /**
+     * Replaces the state file with the fingerprints of this run, so that the next
+     * report only includes changes made after this one. Call this once the report
+     * has been delivered.
+     * 
+     * Precondition: None.
+     * Postcondition: {@code stateFile} holds the fingerprints of this run.
+     * 
+     * @throws RuntimeException if writing the state file fails
+     */
+    public void commit() {
+        writeState(fingerprints, stateFile);
+    }
+
+    /**
+     * Reads the fingerprints stored in a state file.
+     * 
+     * @param stateFile the file to read
+     * @return the alert count, alert hash, and rank of each patient by ID
+     * @throws RuntimeException if reading fails or the file is not a valid state
+     *                          file
+     */
+    private static Map<Long, long[]> readState(File stateFile) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)));
+
+            // Throw RuntimeException if the header does not match
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                in.close();
+                throw new RuntimeException("Not a valid report state file: " + stateFile);
+            }
+
+            int numPatients = in.readInt();
+            Map<Long, long[]> fingerprints = new HashMap<Long, long[]>(numPatients * 2);
+
+            for (int i = 0; i < numPatients; i++) {
+                long id = in.readLong();
+                fingerprints.put(id, new long[] { in.readInt(), in.readLong(), in.readInt() });
+            }
+
+            in.close();
+            return fingerprints;
+        } catch (IOException e) {
+            // Throw RuntimeException if reading fails
+            throw new RuntimeException("Error reading report state: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes fingerprints to a state file. The file is written next to the state
+     * file first and then moved over it, so an interrupted run keeps the previous
+     * state.
+     * 
+     * @param fingerprints the ID, alert count, alert hash, and rank of each patient
+     * @param stateFile    the file to write
+     * @throws RuntimeException if writing fails
+     */
+    private static void writeState(long[][] fingerprints, File stateFile) {
+        File tempFile = new File(stateFile.getPath() + ".tmp");
+
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+
+            // Write the header
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(fingerprints.length);
+
+            for (long[] fingerprint : fingerprints) {
+                out.writeLong(fingerprint[0]);
+                out.writeInt((int) fingerprint[1]);
+                out.writeLong(fingerprint[2]);
+                out.writeInt((int) fingerprint[3]);
+            }
+
+            out.close();
+            Files.move(tempFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // Throw RuntimeException if writing fails
+            throw new RuntimeException("Error writing report state: " + e.getMessage());
+        }
+    }
+}
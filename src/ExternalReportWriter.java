@@ -0,0 +1,502 @@
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * The {@code ExternalReportWriter} class writes the clinic report using a
+ * bounded amount of heap memory. Instead of holding every rendered patient
+ * section in memory and sorting the whole list at once, it spills each section
+ * to a temporary file, sorts fixed-size runs of (alert count, patient ID,
+ * section offset) entries, and k-way merges those runs while streaming the
+ * final ranked report to the output file.
+ * 
+ * The output is byte-for-byte identical to {@code Clinic#generateReport()}:
+ * patients are ordered by alert count in descending order, and patients with
+ * the same alert count keep the order in which they were supplied, which is the
+ * same stable ordering produced by the in-memory merge sort.
+ * 
+ * The heap budget covers the buffered run entries and every stream buffer used
+ * while spilling and merging: the buffers are sized so that a full merge (one
+ * buffer per open run, plus the copy and output buffers) fits in the budget,
+ * and the number of runs merged at once is reduced for small budgets. Merging
+ * always opens at least two runs, so budgets below a few hundred bytes are
+ * exceeded by a small constant.
+ * 
+ * The budget does not cover the patients themselves. Patients supplied as a
+ * collection are already in memory; to bound the memory of the whole report,
+ * supply them as an iterator that loads each patient on demand, such as a
+ * {@code VitalsArchive.PatientReader}, so that each patient can be discarded
+ * once its section is rendered.
+ */
+public class ExternalReportWriter {
+    // Number of heap bytes used by a single buffered run entry (sort key,
+    // patient ID, section offset, and section length)
+    private static final int ENTRY_BYTES = 8 + 8 + 8 + 4;
+
+    // Maximum number of run files merged at once
+    private static final int MAX_FAN_IN = 64;
+
+    // Largest size of the buffer used for each stream while spilling and merging
+    private static final int RUN_BUFFER_BYTES = 8192;
+
+    // Number of entries buffered before the run arrays first grow
+    private static final int INITIAL_RUN_CAPACITY = 1024;
+
+    // Report header, identical to the in-memory report
+    private static final String HEADER = "=========================\n      CLINIC REPORT      \n=========================";
+
+    // Separator placed before each patient section
+    private static final String SEPARATOR = "\n\n";
+
+    // Maximum number of entries sorted in memory per run
+    private int runCapacity;
+
+    // Size of the buffer used for each stream
+    private int bufferBytes;
+
+    // Number of run files merged at once
+    private int fanIn;
+
+    // Charset used for the section file and the output file
+    private Charset charset;
+
+    /**
+     * Constructs an {@code ExternalReportWriter} with the given heap budget.
+     * 
+     * Precondition: {@code heapBudget} is positive.
+     * Postcondition: A new writer is initialized whose in-memory runs and stream
+     * buffers never exceed the heap budget.
+     * 
+     * @param heapBudget the approximate number of heap bytes available for sorting
+     * @throws RuntimeException if {@code heapBudget} is not positive
+     */
+    public ExternalReportWriter(long heapBudget) {
+        // Throw RuntimeException if the heap budget is not positive
+        if (heapBudget <= 0) {
+            throw new RuntimeException("Heap budget must be positive");
+        }
+
+        // Share the budget equally between the buffers of a full merge, keeping
+        // room for at least one entry per buffer
+        this.bufferBytes = (int) Math.max(ENTRY_BYTES, Math.min(heapBudget / (MAX_FAN_IN + 2), RUN_BUFFER_BYTES));
+
+        // Merge as many runs as fit next to the copy and output buffers, and at
+        // least two so that merging makes progress
+        this.fanIn = (int) Math.max(2, Math.min(heapBudget / bufferBytes - 2, MAX_FAN_IN));
+
+        // Fill the rest of the budget with entries next to the section and run
+        // file buffers. At least one entry must fit in a run; the sort key
+        // reserves 31 bits for the position of the entry within its run
+        this.runCapacity = (int) Math.max(1,
+                Math.min((heapBudget - 2L * bufferBytes) / ENTRY_BYTES, Integer.MAX_VALUE));
+        this.charset = Charset.defaultCharset();
+    }
+
+    /**
+     * Writes the ranked report for the given patients to the output file.
+     * 
+     * Precondition: {@code patients} is not null and their records are
+     * initialized.
+     * Postcondition: The report is written to {@code outputFile} and all temporary
+     * files are deleted.
+     * 
+     * @param patients   the patients to include in the report, in their tie order
+     * @param outputFile the file to write the report to
+     * @throws RuntimeException if reading or writing a file fails
+     */
+    public void write(Collection<Patient> patients, File outputFile) {
+        write(patients.iterator(), outputFile);
+    }
+
+    /**
+     * Writes the ranked report for the patients supplied by an iterator to the
+     * output file. Each patient is rendered and released before the next one is
+     * requested, so patients loaded on demand never need to fit in memory at
+     * once.
+     * 
+     * Precondition: {@code patients} is not null and returns patients with
+     * distinct IDs whose records are initialized.
+     * Postcondition: The report is written to {@code outputFile} and all temporary
+     * files are deleted.
+     * 
+     * @param patients   the patients to include in the report, in their tie order
+     * @param outputFile the file to write the report to
+     * @throws RuntimeException if reading or writing a file fails
+     */
+    public void write(Iterator<Patient> patients, File outputFile) {
+        List<Path> runs = new ArrayList<Path>();
+        Path sections = null;
+
+        try {
+            sections = Files.createTempFile("clinic-sections", ".tmp");
+
+            // Render every section to disk and spill sorted runs of entries
+            spillRuns(patients, sections, runs);
+
+            // Reduce the number of runs until they can be merged in a single pass
+            while (runs.size() > fanIn) {
+                List<Path> merged = new ArrayList<Path>();
+
+                for (int i = 0; i < runs.size(); i += fanIn) {
+                    List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+                    merged.add(mergeRuns(group));
+                    deleteAll(group);
+                }
+
+                runs = merged;
+            }
+
+            // Merge the remaining runs and stream the report to the output file
+            writeReport(runs, sections, outputFile);
+        } catch (IOException e) {
+            // Throw RuntimeException if reading or writing a file fails
+            throw new RuntimeException("Error writing report: " + e.getMessage());
+        } finally {
+            deleteAll(runs);
+            if (sections != null) {
+                deleteAll(List.of(sections));
+            }
+        }
+    }
+
+    /**
+     * Renders each patient's section to the section file and writes sorted runs of
+     * entries to temporary run files.
+     * 
+     * Precondition: {@code sections} is an empty writable file.
+     * Postcondition: Every section is stored in {@code sections} and every entry
+     * is stored in exactly one run file in {@code runs}.
+     * 
+     * @param patients the patients to include in the report
+     * @param sections the file to store rendered sections in
+     * @param runs     the list to add created run files to
+     * @throws IOException if writing a file fails
+     */
+    private void spillRuns(Iterator<Patient> patients, Path sections, List<Path> runs) throws IOException {
+        // Buffered entries of the current run, stored as parallel primitive arrays
+        // that grow as patients arrive, since the number of patients is not known
+        // in advance
+        int capacity = Math.min(runCapacity, INITIAL_RUN_CAPACITY);
+        long[] keys = new long[capacity];
+        long[] ids = new long[capacity];
+        long[] offsets = new long[capacity];
+        int[] lengths = new int[capacity];
+        int size = 0;
+        long offset = 0;
+
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(sections), bufferBytes);
+        try {
+            while (patients.hasNext()) {
+                Patient patient = patients.next();
+
+                // Append the rendered section to the section file
+                byte[] section = patient.generateReport().getBytes(charset);
+                out.write(section);
+
+                // Sort by descending alert count, then by position within the run,
+                // which keeps equal entries in their original order
+                keys[size] = ((long) (Integer.MAX_VALUE - patient.numAlerts()) << 31) | size;
+                ids[size] = patient.getId();
+                offsets[size] = offset;
+                lengths[size] = section.length;
+                offset += section.length;
+                size++;
+
+                // Once the run arrays are full, grow them while the old and new
+                // arrays fit in the heap budget together; otherwise spill the run
+                if (size == capacity) {
+                    int grown = (int) Math.min(2L * capacity, runCapacity - capacity);
+
+                    if (grown > capacity) {
+                        keys = Arrays.copyOf(keys, grown);
+                        ids = Arrays.copyOf(ids, grown);
+                        offsets = Arrays.copyOf(offsets, grown);
+                        lengths = Arrays.copyOf(lengths, grown);
+                        capacity = grown;
+                    } else {
+                        runs.add(spillRun(keys, ids, offsets, lengths, size));
+                        size = 0;
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+
+        // Spill any remaining entries
+        if (size > 0) {
+            runs.add(spillRun(keys, ids, offsets, lengths, size));
+        }
+    }
+
+    /**
+     * Sorts the buffered entries and writes them to a new run file.
+     * 
+     * Precondition: The first {@code size} elements of each array are populated.
+     * Postcondition: A run file containing the sorted entries is returned.
+     * 
+     * @param keys    the sort keys of the entries
+     * @param ids     the patient IDs of the entries
+     * @param offsets the section offsets of the entries
+     * @param lengths the section lengths of the entries
+     * @param size    the number of buffered entries
+     * @return the path of the new run file
+     * @throws IOException if writing the run file fails
+     */
+    private Path spillRun(long[] keys, long[] ids, long[] offsets, int[] lengths, int size) throws IOException {
+        Arrays.sort(keys, 0, size);
+
+        Path run = Files.createTempFile("clinic-run", ".tmp");
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), bufferBytes));
+        try {
+            for (int i = 0; i < size; i++) {
+                // Recover the entry's position from the low bits of its key
+                int index = (int) (keys[i] & Integer.MAX_VALUE);
+                int alertCount = Integer.MAX_VALUE - (int) (keys[i] >>> 31);
+
+                new RunEntry(alertCount, ids[index], offsets[index], lengths[index]).writeTo(out);
+            }
+        } finally {
+            out.close();
+        }
+
+        return run;
+    }
+
+    /**
+     * Merges a group of run files into a single new run file.
+     * 
+     * Precondition: Each run file is sorted.
+     * Postcondition: A sorted run file containing every entry of the group is
+     * returned.
+     * 
+     * @param group the run files to merge
+     * @return the path of the merged run file
+     * @throws IOException if reading or writing a run file fails
+     */
+    private Path mergeRuns(List<Path> group) throws IOException {
+        Path run = Files.createTempFile("clinic-run", ".tmp");
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), bufferBytes));
+        RunMerger merger = new RunMerger(group, bufferBytes);
+
+        try {
+            RunEntry entry;
+            while ((entry = merger.next()) != null) {
+                entry.writeTo(out);
+            }
+        } finally {
+            merger.close();
+            out.close();
+        }
+
+        return run;
+    }
+
+    /**
+     * Merges the final run files and streams the ranked report to the output
+     * file, copying each section from the section file.
+     * 
+     * Precondition: Each run file is sorted and {@code sections} contains every
+     * rendered section.
+     * Postcondition: The complete report is written to {@code outputFile}.
+     * 
+     * @param runs       the run files to merge
+     * @param sections   the file containing rendered sections
+     * @param outputFile the file to write the report to
+     * @throws IOException if reading or writing a file fails
+     */
+    private void writeReport(List<Path> runs, Path sections, File outputFile) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile), bufferBytes);
+        RandomAccessFile source = new RandomAccessFile(sections.toFile(), "r");
+        RunMerger merger = new RunMerger(runs, bufferBytes);
+
+        try {
+            out.write(HEADER.getBytes(charset));
+
+            // Copy each section in ranked order
+            byte[] separator = SEPARATOR.getBytes(charset);
+            byte[] buffer = new byte[bufferBytes];
+            RunEntry entry;
+
+            while ((entry = merger.next()) != null) {
+                out.write(separator);
+                source.seek(entry.offset);
+
+                int remaining = entry.length;
+                while (remaining > 0) {
+                    int read = source.read(buffer, 0, Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of section file");
+                    }
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+        } finally {
+            merger.close();
+            source.close();
+            out.close();
+        }
+    }
+
+    /**
+     * Deletes the given temporary files, ignoring files that cannot be deleted.
+     * 
+     * Precondition: {@code paths} is not null.
+     * Postcondition: Each file is deleted if possible.
+     * 
+     * @param paths the files to delete
+     */
+    private static void deleteAll(List<Path> paths) {
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // Temporary files are best-effort cleanup
+                path.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * The {@code RunEntry} class represents a single entry of a sorted run: a
+     * patient's alert count and ID, and the location of their rendered section.
+     */
+    private static class RunEntry {
+        private int alertCount; // Number of alerts of the patient
+        private long id; // Patient ID
+        private long offset; // Byte offset of the section in the section file
+        private int length; // Byte length of the section
+
+        /**
+         * Constructs a {@code RunEntry} object with the specified values.
+         * 
+         * @param alertCount the number of alerts of the patient
+         * @param id         the ID of the patient
+         * @param offset     the byte offset of the section
+         * @param length     the byte length of the section
+         */
+        private RunEntry(int alertCount, long id, long offset, int length) {
+            this.alertCount = alertCount;
+            this.id = id;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Reads the next entry from a run file.
+         * 
+         * @param in the stream to read from
+         * @return the next entry, or null if the end of the run is reached
+         * @throws IOException if reading fails
+         */
+        private static RunEntry readFrom(DataInputStream in) throws IOException {
+            try {
+                return new RunEntry(in.readInt(), in.readLong(), in.readLong(), in.readInt());
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Writes the entry to a run file.
+         * 
+         * @param out the stream to write to
+         * @throws IOException if writing fails
+         */
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(alertCount);
+            out.writeLong(id);
+            out.writeLong(offset);
+            out.writeInt(length);
+        }
+
+        /**
+         * Compares two entries in report order: descending alert count, then
+         * ascending section offset, which preserves the original patient order for
+         * ties.
+         * 
+         * @param other the entry to compare to
+         * @return a negative value if this entry comes first; otherwise positive
+         */
+        private int compareTo(RunEntry other) {
+            if (alertCount != other.alertCount) {
+                return Integer.compare(other.alertCount, alertCount);
+            }
+            return Long.compare(offset, other.offset);
+        }
+    }
+
+    /**
+     * The {@code RunMerger} class performs a k-way merge over a set of sorted run
+     * files using a priority queue holding the head entry of each run.
+     */
+    private static class RunMerger {
+        private List<DataInputStream> inputs = new ArrayList<DataInputStream>(); // Open run files
+        private PriorityQueue<RunEntry> heads; // Head entry of each run
+        private Map<RunEntry, DataInputStream> sources = new IdentityHashMap<RunEntry, DataInputStream>(); // Run of each head entry
+
+        /**
+         * Opens each run file and reads its first entry.
+         * 
+         * @param runs        the sorted run files to merge
+         * @param bufferBytes the size of the buffer of each run file
+         * @throws IOException if reading a run file fails
+         */
+        private RunMerger(List<Path> runs, int bufferBytes) throws IOException {
+            heads = new PriorityQueue<RunEntry>(Math.max(1, runs.size()), (a, b) -> a.compareTo(b));
+
+            for (Path run : runs) {
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(run), bufferBytes));
+                inputs.add(in);
+                advance(in);
+            }
+        }
+
+        /**
+         * Returns the next entry in report order.
+         * 
+         * @return the next entry, or null if every run is exhausted
+         * @throws IOException if reading a run file fails
+         */
+        private RunEntry next() throws IOException {
+            RunEntry entry = heads.poll();
+            if (entry == null) {
+                return null;
+            }
+
+            // Replace the returned entry with the next entry from the same run
+            advance(sources.remove(entry));
+            return entry;
+        }
+
+        /**
+         * Reads the next entry from a run file into the priority queue.
+         * 
+         * @param in the run file to read from
+         * @throws IOException if reading fails
+         */
+        private void advance(DataInputStream in) throws IOException {
+            RunEntry entry = RunEntry.readFrom(in);
+            if (entry != null) {
+                sources.put(entry, in);
+                heads.add(entry);
+            }
+        }
+
+        /**
+         * Closes every open run file.
+         * 
+         * @throws IOException if closing fails
+         */
+        private void close() throws IOException {
+            for (DataInputStream in : inputs) {
+                in.close();
+            }
+        }
+    }
+}
@@ -6,6 +6,50 @@ import java.time.*;
  * logic to determine whether the heart rate falls outside of the normal ranges.
  */
 public class HeartRateRecord extends Record {
+    // Vital type of heart rate: one integer column in bpm
+    public static final VitalType TYPE = new VitalType("Heart Rate", 1, 1, HeartRateRecord.class) {
+        @Override
+        public Record parse(LocalDate date, String field) {
+            return new HeartRateRecord(date, Integer.parseInt(field));
+        }
+
+        @Override
+        public void store(Record record, long[] values, int offset) {
+            values[offset] = ((HeartRateRecord) record).heartRate;
+        }
+
+        @Override
+        public Record load(LocalDate date, long[] values, int offset) {
+            return new HeartRateRecord(date, (int) values[offset]);
+        }
+
+        @Override
+        boolean isGrouped() {
+            return true;
+        }
+
+        @Override
+        void evaluateGroup(Record[] records, int[] slots, int from, int to, int ageYears, char sex,
+                String[] results) {
+            // Look up the normal bounds once for the group
+            int band = ageBand(ageYears);
+            int lower = LOWER_BOUNDS[band];
+            int upper = UPPER_BOUNDS[band];
+
+            for (int i = from; i < to; i++) {
+                results[slots[i]] = ((HeartRateRecord) records[i]).getAlert(lower, upper);
+            }
+        }
+    };
+
+    // Upper bounds (exclusive) of the age bands in years with their own normal
+    // range
+    private static final int[] AGE_BAND_LIMITS = { 1, 3, 6, 13 };
+
+    // Normal heart rate bounds in bpm, indexed by age band
+    private static final int[] LOWER_BOUNDS = { 100, 80, 70, 65, 60 };
+    private static final int[] UPPER_BOUNDS = { 170, 150, 130, 120, 100 };
+
     // Heart rate in beats per minute (bpm)
     private int heartRate;
 
@@ -41,30 +85,41 @@ public class HeartRateRecord extends Record {
      */
     @Override
     public String getAlert(char sex, Period age) {
-        // Convert age to years
-        int ageYears = age.getYears();
-
-        // Define normal heart rate bounds based on age
-        int lower;
-        int upper;
+        // Look up the normal bounds for the age and check the heart rate against them
+        int band = ageBand(age.getYears());
+        return getAlert(LOWER_BOUNDS[band], UPPER_BOUNDS[band]);
+    }
 
-        if (ageYears < 1) {
-            lower = 100;
-            upper = 170;
-        } else if (ageYears < 3) {
-            lower = 80;
-            upper = 150;
-        } else if (ageYears < 6) {
-            lower = 70;
-            upper = 130;
-        } else if (ageYears < 13) {
-            lower = 65;
-            upper = 120;
-        } else {
-            lower = 60;
-            upper = 100;
+    /**
+     * Returns the index of the age band containing the given age.
+     * 
+     * Precondition: {@code ageYears} is not negative.
+     * Postcondition: The index of the age band in the bound tables is returned.
+     * 
+     * @param ageYears the age of the patient in years
+     * @return the index of the age band
+     */
+    private static int ageBand(int ageYears) {
+        int band = 0;
+        while (band < AGE_BAND_LIMITS.length && ageYears >= AGE_BAND_LIMITS[band]) {
+            band++;
         }
+        return band;
+    }
 
+    /**
+     * Returns an alert message if the heart rate is outside of the given normal
+     * bounds of the patient's age band.
+     * 
+     * Precondition: {@code lower <= upper}.
+     * Postcondition: An alert is returned if the heart rate is outside the bounds;
+     * otherwise, an empty string is returned.
+     * 
+     * @param lower the lower bound of the normal range
+     * @param upper the upper bound of the normal range
+     * @return an alert if heart rate is abnormal; otherwise an empty string
+     */
+    private String getAlert(int lower, int upper) {
         // Check for elevated heart rate (tachycardia)
         if (heartRate > upper) {
             return getDate() + " [Heart Rate] Tachycardia (" + heartRate + " bpm)";
@@ -1,61 +1,288 @@
 import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
 import java.util.*;
 import java.time.*;
 
 /**
  * The {@code Main} class serves as the entry point for executing the clinic
- * system. It reads the input file path and output file path from the user,
- * initializes the Clinic system, and writes the report to the output file.
+ * system. It reads the input file path, output file path, an optional heap
+ * budget for the external-memory sort, and an optional census statistics file
+ * path from the user, initializes the Clinic system, and writes the report to
+ * the output file.
+ * Input and output paths ending in {@code .cva} are read and written as a
+ * {@code VitalsArchive} instead.
+ * 
+ * When arguments are given, the prompts are skipped:
+ * {@code <input file> [output file] [--heap-budget <bytes>] [--stats <file>]
+ * [--delta <state file>]}, with the options in any position. A heap budget
+ * writes the report with the external-memory sort, streaming the patients of an
+ * archive input into the sort without loading the whole archive. A statistics
+ * file receives the {@code CensusStatistics} report. A state file writes a
+ * {@code DeltaReport} of only the patients whose alerts changed since the last
+ * run with that file.
+ * 
+ * Running with {@code --serve [input file] [port]} keeps the clinic resident
+ * and serves reports over HTTP through {@code ClinicServer} instead.
  */
 public class Main {
-    public static void main(String[] args) {
-        // Initialize scanner for user input
-        Scanner scanner = new Scanner(System.in);
+    // File extension identifying a vitals archive
+    private static final String ARCHIVE_EXTENSION = ".cva";
+
+    // Default port of the HTTP server
+    private static final int DEFAULT_PORT = 8080;
 
-        // Prompt user for the input file path (with a default value fallback)
-        System.out.print("Enter path to input file (default: input.txt): ");
-        String inputFilePath = scanner.nextLine();
-        if (inputFilePath.isEmpty()) {
-            inputFilePath = "input.txt";
+    public static void main(String[] args) {
+        // Run the HTTP server instead of writing a report if requested
+        if (args.length > 0 && args[0].equals("--serve")) {
+            serve(args);
+            return;
         }
 
-        // Prompt user for the output file path (with a default value fallback)
-        System.out.print("Enter path to output file (default: output.txt): ");
-        String outputFilePath = scanner.nextLine();
-        if (outputFilePath.isEmpty())
-            outputFilePath = "output.txt";
+        String inputFilePath;
+        String outputFilePath;
+        long heapBudget = 0;
+        String statsFilePath = null;
+        String deltaFilePath = null;
+
+        if (args.length > 0) {
+            // Non-interactive mode: take the paths and options from the arguments,
+            // so scheduled runs never wait on (or load) the prompts. Options may
+            // appear anywhere; the remaining arguments are the input and output paths
+            List<String> paths = new ArrayList<String>();
+
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+
+                // Collect arguments that are not options as paths
+                if (!option.startsWith("--")) {
+                    paths.add(option);
+                    continue;
+                }
+
+                // Throw RuntimeException if the option is not recognized
+                if (!option.equals("--heap-budget") && !option.equals("--stats") && !option.equals("--delta")) {
+                    throw new RuntimeException("Unknown option: " + option);
+                }
+
+                // Throw RuntimeException if the option is missing its value
+                if (i + 1 >= args.length) {
+                    throw new RuntimeException("Missing value for option: " + option);
+                }
+
+                i++;
+                if (option.equals("--heap-budget")) {
+                    heapBudget = parseHeapBudget(args[i]);
+                } else if (option.equals("--stats")) {
+                    statsFilePath = args[i];
+                } else {
+                    deltaFilePath = args[i];
+                }
+            }
+
+            // Throw RuntimeException if the input path is missing or there are extra
+            // paths
+            if (paths.isEmpty() || paths.size() > 2) {
+                throw new RuntimeException("Expected <input file> [output file], got " + paths.size() + " paths");
+            }
+
+            inputFilePath = paths.get(0);
+            outputFilePath = paths.size() > 1 ? paths.get(1) : "output.txt";
+        } else {
+            // Initialize scanner for user input
+            Scanner scanner = new Scanner(System.in);
+
+            // Prompt user for the input file path (with a default value fallback)
+            System.out.print("Enter path to input file (default: input.txt): ");
+            inputFilePath = scanner.nextLine();
+            if (inputFilePath.isEmpty()) {
+                inputFilePath = "input.txt";
+            }
+
+            // Prompt user for the output file path (with a default value fallback)
+            System.out.print("Enter path to output file (default: output.txt): ");
+            outputFilePath = scanner.nextLine();
+            if (outputFilePath.isEmpty())
+                outputFilePath = "output.txt";
 
-        // Close the scanner to free up resources
-        scanner.close();
+            // Prompt user for the heap budget of the external-memory sort (with the
+            // in-memory report as the fallback, also when scripted input ends here)
+            System.out.print("Enter heap budget in bytes for the report (default: in-memory): ");
+            String heapBudgetText = scanner.hasNextLine() ? scanner.nextLine() : "";
+            if (!heapBudgetText.isEmpty()) {
+                heapBudget = parseHeapBudget(heapBudgetText);
+            }
+
+            // Prompt user for the census statistics file path (with no statistics as
+            // the fallback, also when scripted input ends here)
+            System.out.print("Enter path to statistics file (default: none): ");
+            statsFilePath = scanner.hasNextLine() ? scanner.nextLine() : "";
+            if (statsFilePath.isEmpty()) {
+                statsFilePath = null;
+            }
+
+            // Close the scanner to free up resources
+            scanner.close();
+        }
 
         // Record the start time to track processing duration
         LocalDateTime startTime = LocalDateTime.now();
 
-        // Initialize the Clinic object with the input file
+        // Collect census statistics during ingestion if requested
+        CensusStatistics statistics = statsFilePath != null ? new CensusStatistics() : null;
+
+        // Stream the patients of a vitals archive straight into the external-memory
+        // sort when only the ranked report is needed, so that the archive is never
+        // loaded in full
         File inputFile = new File(inputFilePath);
+        if (heapBudget > 0 && statistics == null && deltaFilePath == null
+                && inputFilePath.endsWith(ARCHIVE_EXTENSION) && !outputFilePath.endsWith(ARCHIVE_EXTENSION)) {
+            System.out.println("\n(1/3) Reading and processing data…");
+            System.out.println("(2/3) Writing report…");
+            VitalsArchive.writeReport(inputFile, new File(outputFilePath), heapBudget);
+            System.out.println("(3/3) Report written to " + outputFilePath + " successfully in "
+                    + Duration.between(startTime, LocalDateTime.now()).toMillis() + " ms");
+            return;
+        }
+
+        // Initialize the Clinic object with the input file, which is either a
+        // vitals archive or a text file in the input format. Alerts are deferred:
+        // archives do not need them, and reports evaluate every record in one
+        // batch grouped by age and sex.
         System.out.println("\n(1/3) Reading and processing data…");
-        Clinic clinic = new Clinic(inputFile);
+        Clinic clinic;
+        if (inputFilePath.endsWith(ARCHIVE_EXTENSION)) {
+            clinic = VitalsArchive.read(inputFile, true);
+            if (statistics != null) {
+                System.out.println("[WARN] Statistics are only collected from text input files");
+            }
+        } else {
+            clinic = new Clinic(inputFile, true, statistics);
+        }
 
-        // Generate the report
-        System.out.println("(2/3) Writing report…");
-        String report = clinic.generateReport();
+        // Write the census statistics if requested, once every alert has been
+        // evaluated and counted
+        if (statistics != null) {
+            clinic.evaluateAlerts();
+            writeFile(new File(statsFilePath), statistics.generateReport());
+        }
+
+        // Write a vitals archive instead of a report if requested
+        if (outputFilePath.endsWith(ARCHIVE_EXTENSION)) {
+            System.out.println("(2/3) Writing archive…");
+            clinic.writeArchive(new File(outputFilePath));
+            System.out.println("(3/3) Archive written to " + outputFilePath + " successfully in "
+                    + Duration.between(startTime, LocalDateTime.now()).toMillis() + " ms");
+            return;
+        }
 
-        // Write the report to the output file
+        // Generate and write the report: only the changes since the last run when a
+        // state file is given, or using the external-memory sort when a heap budget
+        // is given
+        System.out.println("(2/3) Writing report…");
         File outputFile = new File(outputFilePath);
-        try {
-            PrintWriter writer = new PrintWriter(outputFile);
-            writer.print(report);
-            writer.close();
+        if (deltaFilePath != null) {
+            if (heapBudget > 0) {
+                System.out.println("[WARN] Heap budget is ignored for delta reports");
+            }
+
+            // Store the new alert state only once the report is written, so that a
+            // failed write reports the same changes again on the next run
+            DeltaReport delta = clinic.generateDeltaReport(new File(deltaFilePath));
+            writeFile(outputFile, delta.getReport());
+            delta.commit();
+        } else if (heapBudget > 0) {
+            clinic.writeReport(outputFile, heapBudget);
+        } else {
+            writeFile(outputFile, clinic.generateReport());
+        }
 
-            // Record the end time after writing completes
-            LocalDateTime endTime = LocalDateTime.now();
+        // Record the end time after writing completes
+        LocalDateTime endTime = LocalDateTime.now();
 
-            // Display confirmation with duration in milliseconds
-            System.out.println("(3/3) Report written to " + outputFilePath + " successfully in "
-                    + Duration.between(startTime, endTime).toMillis() + " ms");
+        // Display confirmation with duration in milliseconds
+        System.out.println("(3/3) Report written to " + outputFilePath + " successfully in "
+                + Duration.between(startTime, endTime).toMillis() + " ms");
+    }
+
+    /**
+     * Writes text to a file, replacing any existing content. Unlike a
+     * {@code PrintWriter}, which records write errors without throwing them,
+     * every failure is reported, so callers can rely on the file being written
+     * once this returns.
+     * 
+     * Precondition: {@code file} and {@code text} are not null.
+     * Postcondition: {@code text} is written to {@code file}.
+     * 
+     * @param file the file to write to
+     * @param text the text to write
+     * @throws RuntimeException if file writing fails
+     */
+    private static void writeFile(File file, String text) {
+        try {
+            Files.writeString(file.toPath(), text, Charset.defaultCharset());
         } catch (IOException e) {
             // Throw RuntimeException if file writing fails
             throw new RuntimeException("Error writing to file: " + e.getMessage());
         }
     }
+
+    /**
+     * Parses a heap budget for the external-memory sort.
+     * 
+     * Precondition: {@code text} is not null.
+     * Postcondition: The heap budget in bytes is returned.
+     * 
+     * @param text the heap budget in bytes as text
+     * @return the heap budget in bytes
+     * @throws RuntimeException if the heap budget is not a positive number
+     */
+    private static long parseHeapBudget(String text) {
+        long heapBudget;
+
+        try {
+            heapBudget = Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            // Throw RuntimeException if the heap budget is not a number
+            throw new RuntimeException("Invalid heap budget: " + text);
+        }
+
+        // Throw RuntimeException if the heap budget is not positive
+        if (heapBudget <= 0) {
+            throw new RuntimeException("Heap budget must be positive: " + text);
+        }
+
+        return heapBudget;
+    }
+
+    /**
+     * Loads the input file and serves it over HTTP until the process is stopped.
+     * 
+     * Precondition: {@code args[0]} is {@code --serve}, optionally followed by the
+     * input file path and the port.
+     * Postcondition: The server is started on the loopback interface.
+     * 
+     * @param args the command-line arguments
+     * @throws RuntimeException if the port is invalid or the server cannot start
+     */
+    private static void serve(String[] args) {
+        String inputFilePath = args.length > 1 ? args[1] : "input.txt";
+        int port;
+
+        try {
+            port = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PORT;
+        } catch (NumberFormatException e) {
+            // Throw RuntimeException if the port is not a number
+            throw new RuntimeException("Invalid port: " + args[2]);
+        }
+
+        // Alerts are evaluated on first request, so loading stays fast
+        File inputFile = new File(inputFilePath);
+        Clinic clinic = inputFilePath.endsWith(ARCHIVE_EXTENSION) ? VitalsArchive.read(inputFile, true)
+                : new Clinic(inputFile, true);
+
+        ClinicServer server = new ClinicServer(clinic, port);
+        server.start();
+        System.out.println("Serving " + inputFilePath + " on http://localhost:" + server.getPort());
+    }
 }
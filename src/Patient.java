@@ -8,7 +8,9 @@ import java.time.*;
  * 
  * Alerts are generated when a newly added {@code Record} indicates an abnormal
  * reading, determined by logic in the {@code Record#getAlert(char, Period)}
- * method.
+ * method. In lazy mode, records are stored unevaluated and alerts are generated
+ * on first access through {@code numAlerts()} or {@code generateReport()}, then
+ * kept until new records arrive.
  */
 public class Patient {
     private long id; // Patient ID
@@ -17,6 +19,8 @@ public class Patient {
     private LocalDate dob; // Date of birth
     private List<Record> records = new ArrayList<Record>(); // List of all vital records for the patient
     private List<String> alerts = new ArrayList<String>(); // List of alerts generated from abnormal readings
+    private boolean lazyAlerts; // Whether alert evaluation is deferred until first access
+    private int numEvaluated; // Number of records already evaluated for alerts
 
     /**
      * Constructs a {@code Patient} object with demographic information.
@@ -34,6 +38,28 @@ public class Patient {
      *                          invalid, or {@code dob} is null or in the future.
      */
     public Patient(long id, String name, char sex, LocalDate dob) {
+        this(id, name, sex, dob, false);
+    }
+
+    /**
+     * Constructs a {@code Patient} object with demographic information and the
+     * given alert evaluation mode.
+     * 
+     * Precondition: {@code name} is not null or empty. {@code sex} is 'M', 'F', or
+     * 'X'. {@code dob} is not null and represents a valid date in the past.
+     * Postcondition: A new {@code Patient} object is initialized with no records or
+     * alerts.
+     * 
+     * @param id         the ID of the patient
+     * @param name       the full name of the patient
+     * @param sex        the sex of the patient ('M', 'F', or 'X')
+     * @param dob        the date of birth of the patient
+     * @param lazyAlerts whether alerts are evaluated on first access instead of
+     *                   when each record is added
+     * @throws RuntimeException if {@code name} is null or empty, {@code sex} is
+     *                          invalid, or {@code dob} is null or in the future.
+     */
+    public Patient(long id, String name, char sex, LocalDate dob, boolean lazyAlerts) {
         // Throw RuntimeException if name is null or empty
         if (name == null || name.isEmpty()) {
             throw new RuntimeException("Name must not be null or empty");
@@ -53,6 +79,7 @@ public class Patient {
         this.name = name;
         this.sex = sex;
         this.dob = dob;
+        this.lazyAlerts = lazyAlerts;
     }
 
     /**
@@ -67,6 +94,54 @@ public class Patient {
         return id;
     }
 
+    /**
+     * Returns the full name of the patient.
+     * 
+     * Precondition: The {@code Patient} object has been initialized.
+     * Postcondition: The name of the patient is returned.
+     * 
+     * @return the full name of the patient
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the sex of the patient.
+     * 
+     * Precondition: The {@code Patient} object has been initialized.
+     * Postcondition: The sex of the patient is returned.
+     * 
+     * @return the sex of the patient ('M', 'F', or 'X')
+     */
+    public char getSex() {
+        return sex;
+    }
+
+    /**
+     * Returns the date of birth of the patient.
+     * 
+     * Precondition: The {@code Patient} object has been initialized.
+     * Postcondition: The date of birth of the patient is returned.
+     * 
+     * @return the date of birth of the patient
+     */
+    public LocalDate getDob() {
+        return dob;
+    }
+
+    /**
+     * Returns the vital records of the patient in the order they were added.
+     * 
+     * Precondition: The {@code Patient} object has been initialized.
+     * Postcondition: A read-only view of {@code records} is returned.
+     * 
+     * @return the list of vital records
+     */
+    public List<Record> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
     /**
      * Calculates the age of the patient as a {@code Period}.
      * 
@@ -82,21 +157,50 @@ public class Patient {
     /**
      * Returns the number of alerts the patient has accumulated.
      * 
-     * Precondition: Alerts have been generated through {@code addRecord()}.
-     * Postcondition: The number of alerts is returned.
+     * Precondition: Records have been added through {@code addRecord()}.
+     * Postcondition: Any unevaluated records are evaluated and the number of
+     * alerts is returned.
      * 
      * @return the number of alerts
      */
     public int numAlerts() {
+        evaluateAlerts();
         return alerts.size();
     }
 
     /**
-     * Adds a new vital record to {@code records} and checks for alerts.
+     * Returns a 64-bit FNV-1a hash of the patient's alerts in order, used to
+     * detect whether the alerts changed between reports.
+     * 
+     * Precondition: Records have been added through {@code addRecord()}.
+     * Postcondition: Any unevaluated records are evaluated and the hash of the
+     * alerts is returned.
+     * 
+     * @return the hash of the alerts
+     */
+    long alertHash() {
+        evaluateAlerts();
+        long hash = 0xCBF29CE484222325L;
+
+        for (String alert : alerts) {
+            for (int i = 0; i < alert.length(); i++) {
+                hash = (hash ^ alert.charAt(i)) * 0x100000001B3L;
+            }
+
+            // Separate alerts so that their boundaries affect the hash
+            hash = (hash ^ '\n') * 0x100000001B3L;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Adds a new vital record to {@code records} and checks for alerts, unless
+     * alert evaluation is lazy.
      * 
      * Precondition: {@code record} is not null.
-     * Postcondition: The record is added to {@code records} and any associated
-     * alerts are stored in {@code alerts}.
+     * Postcondition: The record is added to {@code records}. If alerts are not
+     * lazy, any associated alerts are stored in {@code alerts}.
      * 
      * @param record the vital record to add
      */
@@ -104,13 +208,78 @@ public class Patient {
         // Add the record to the patient's records
         records.add(record);
 
-        // Generate an alert string for the record
-        String alert = record.getAlert(sex, getAge());
+        // In lazy mode, the record is evaluated when alerts are first needed
+        if (!lazyAlerts) {
+            evaluateAlerts();
+        }
+    }
 
-        // If the alert is not empty, store it in the patient's alerts
-        if (!alert.isEmpty()) {
-            alerts.add(alert);
+    /**
+     * Evaluates every record added since the last evaluation and stores any
+     * resulting alerts. Alerts of earlier records are kept, so adding records only
+     * invalidates the new ones.
+     * 
+     * Precondition: None.
+     * Postcondition: Every record in {@code records} has been evaluated and its
+     * alert, if any, is stored in {@code alerts} in record order.
+     */
+    private void evaluateAlerts() {
+        // Skip if every record has already been evaluated
+        if (numEvaluated == records.size()) {
+            return;
         }
+
+        // Calculate the age once for all pending records
+        Period age = getAge();
+
+        for (int i = numEvaluated; i < records.size(); i++) {
+            // Generate an alert string for the record
+            String alert = records.get(i).getAlert(sex, age);
+
+            // If the alert is not empty, store it in the patient's alerts
+            if (!alert.isEmpty()) {
+                alerts.add(alert);
+            }
+        }
+
+        numEvaluated = records.size();
+    }
+
+    /**
+     * Returns the records that have not been evaluated for alerts yet, in the
+     * order they were added.
+     * 
+     * Precondition: None.
+     * Postcondition: A read-only view of the unevaluated records is returned.
+     * 
+     * @return the list of unevaluated records
+     */
+    List<Record> pendingRecords() {
+        return Collections.unmodifiableList(records.subList(numEvaluated, records.size()));
+    }
+
+    /**
+     * Stores externally evaluated alerts for the records returned by
+     * {@code pendingRecords()}.
+     * 
+     * Precondition: {@code results[offset + i]} holds the alert of the i-th
+     * pending record, or an empty string if it is normal.
+     * Postcondition: The alerts are stored in {@code alerts} in record order and
+     * every record is marked as evaluated.
+     * 
+     * @param results the alerts of the pending records
+     * @param offset  the index of the first pending record's alert in
+     *                {@code results}
+     */
+    void commitAlerts(String[] results, int offset) {
+        for (int i = 0; i < records.size() - numEvaluated; i++) {
+            // If the alert is not empty, store it in the patient's alerts
+            if (!results[offset + i].isEmpty()) {
+                alerts.add(results[offset + i]);
+            }
+        }
+
+        numEvaluated = records.size();
     }
 
     /**
@@ -125,6 +294,9 @@ public class Patient {
     public String generateReport() {
         StringBuilder report = new StringBuilder();
 
+        // Evaluate any records that have not been evaluated yet
+        evaluateAlerts();
+
         // Header containing personal demographics
         report.append("Patient: ").append(name).append(" (").append(id).append(")\n");
         report.append("Sex: ").append(sex).append("\n");
@@ -7,6 +7,50 @@ import java.time.*;
  * normal ranges.
  */
 public class RespiratoryRateRecord extends Record {
+    // Vital type of respiratory rate: one integer column in breaths per minute
+    public static final VitalType TYPE = new VitalType("Respiratory Rate", 4, 1, RespiratoryRateRecord.class) {
+        @Override
+        public Record parse(LocalDate date, String field) {
+            return new RespiratoryRateRecord(date, Integer.parseInt(field));
+        }
+
+        @Override
+        public void store(Record record, long[] values, int offset) {
+            values[offset] = ((RespiratoryRateRecord) record).respiratoryRate;
+        }
+
+        @Override
+        public Record load(LocalDate date, long[] values, int offset) {
+            return new RespiratoryRateRecord(date, (int) values[offset]);
+        }
+
+        @Override
+        boolean isGrouped() {
+            return true;
+        }
+
+        @Override
+        void evaluateGroup(Record[] records, int[] slots, int from, int to, int ageYears, char sex,
+                String[] results) {
+            // Look up the normal bounds once for the group
+            int band = ageBand(ageYears);
+            int lower = LOWER_BOUNDS[band];
+            int upper = UPPER_BOUNDS[band];
+
+            for (int i = from; i < to; i++) {
+                results[slots[i]] = ((RespiratoryRateRecord) records[i]).getAlert(lower, upper);
+            }
+        }
+    };
+
+    // Upper bounds (exclusive) of the age bands in years with their own normal
+    // range
+    private static final int[] AGE_BAND_LIMITS = { 1, 3, 6, 13 };
+
+    // Normal respiratory rate bounds in breaths per minute, indexed by age band
+    private static final int[] LOWER_BOUNDS = { 30, 24, 20, 15, 12 };
+    private static final int[] UPPER_BOUNDS = { 60, 40, 34, 30, 20 };
+
     // Respiratory rate in breaths per minute
     private int respiratoryRate;
 
@@ -43,30 +87,41 @@ public class RespiratoryRateRecord extends Record {
      */
     @Override
     public String getAlert(char sex, Period age) {
-        // Convert age to years
-        int ageYears = age.getYears();
-
-        // Define normal respiratory rate bounds based on age
-        int lower;
-        int upper;
+        // Look up the normal bounds for the age and check the respiratory rate against them
+        int band = ageBand(age.getYears());
+        return getAlert(LOWER_BOUNDS[band], UPPER_BOUNDS[band]);
+    }
 
-        if (ageYears < 1) {
-            lower = 30;
-            upper = 60;
-        } else if (ageYears < 3) {
-            lower = 24;
-            upper = 40;
-        } else if (ageYears < 6) {
-            lower = 20;
-            upper = 34;
-        } else if (ageYears < 13) {
-            lower = 15;
-            upper = 30;
-        } else {
-            lower = 12;
-            upper = 20;
+    /**
+     * Returns the index of the age band containing the given age.
+     * 
+     * Precondition: {@code ageYears} is not negative.
+     * Postcondition: The index of the age band in the bound tables is returned.
+     * 
+     * @param ageYears the age of the patient in years
+     * @return the index of the age band
+     */
+    private static int ageBand(int ageYears) {
+        int band = 0;
+        while (band < AGE_BAND_LIMITS.length && ageYears >= AGE_BAND_LIMITS[band]) {
+            band++;
         }
+        return band;
+    }
 
+    /**
+     * Returns an alert message if the respiratory rate is outside of the given normal
+     * bounds of the patient's age band.
+     * 
+     * Precondition: {@code lower <= upper}.
+     * Postcondition: An alert is returned if the respiratory rate is outside the bounds;
+     * otherwise, an empty string is returned.
+     * 
+     * @param lower the lower bound of the normal range
+     * @param upper the upper bound of the normal range
+     * @return an alert if respiratory rate is abnormal; otherwise an empty string
+     */
+    private String getAlert(int lower, int upper) {
         // Check for tachypnea
         if (respiratoryRate > upper) {
             return getDate() + " [Respiratory Rate] Tachypnea (" + respiratoryRate + " breaths/min)";
@@ -7,6 +7,59 @@ import java.time.*;
  * normal ranges.
  */
 public class TemperatureRecord extends Record {
+    // Vital type of temperature: one decimal column in celsius (°C), stored as
+    // fixed-point tenths of a degree. Temperatures that are not an exact tenth of
+    // a degree cannot be stored, since rounding them could change their alert
+    public static final VitalType TYPE = new VitalType("Temperature", 3, 1, TemperatureRecord.class) {
+        @Override
+        public Record parse(LocalDate date, String field) {
+            return new TemperatureRecord(date, Double.parseDouble(field));
+        }
+
+        @Override
+        public void store(Record record, long[] values, int offset) {
+            double tenths = ((TemperatureRecord) record).temperature * 10;
+            long stored = Math.round(tenths);
+
+            // Throw RuntimeException if the temperature is not an exact tenth
+            if (Math.abs(tenths - stored) >= 1e-9) {
+                throw new RuntimeException("Temperature " + ((TemperatureRecord) record).temperature
+                        + " \u00B0C is not a multiple of 0.1 \u00B0C");
+            }
+
+            values[offset] = stored;
+        }
+
+        @Override
+        public Record load(LocalDate date, long[] values, int offset) {
+            return new TemperatureRecord(date, values[offset] / 10.0);
+        }
+
+        @Override
+        boolean isGrouped() {
+            return true;
+        }
+
+        @Override
+        void evaluateGroup(Record[] records, int[] slots, int from, int to, int ageYears, char sex,
+                String[] results) {
+            // Temperature thresholds do not depend on the group
+            for (int i = from; i < to; i++) {
+                results[slots[i]] = ((TemperatureRecord) records[i]).getAlert();
+            }
+        }
+    };
+
+    // Temperature at or above which a reading is a high fever (°C)
+    static final double HIGH_FEVER_THRESHOLD = 39.4;
+
+    // Temperature at or above which a reading is a fever (°C), shared with the
+    // census statistics so that their fever counts match the alerts
+    static final double FEVER_THRESHOLD = 38.0;
+
+    // Temperature below which a reading is hypothermia (°C)
+    static final double HYPOTHERMIA_THRESHOLD = 35.0;
+
     // Body temperature in degrees celsius (°C)
     private double temperature;
 
@@ -26,6 +79,18 @@ public class TemperatureRecord extends Record {
         this.temperature = temperature;
     }
 
+    /**
+     * Returns the body temperature in celsius (°C).
+     * 
+     * Precondition: The record is initialized.
+     * Postcondition: The body temperature in celsius (°C) is returned.
+     * 
+     * @return the body temperature in celsius (°C)
+     */
+    public double getTemperature() {
+        return temperature;
+    }
+
     /**
      * Returns an alert message if the temperature is outside of the normal range.
      * Values are referenced from Cleveland Clinic
@@ -43,18 +108,32 @@ public class TemperatureRecord extends Record {
      */
     @Override
     public String getAlert(char sex, Period age) {
+        return getAlert();
+    }
+
+    /**
+     * Returns an alert message if the temperature is outside of the normal range,
+     * which is the same for every age and sex.
+     * 
+     * Precondition: None.
+     * Postcondition: An alert is returned if the temperature is outside normal
+     * bounds; otherwise, an empty string is returned.
+     * 
+     * @return an alert if temperature is abnormal; otherwise an empty string
+     */
+    private String getAlert() {
         // Check for high fever (≥39.4 °C)
-        if (temperature >= 39.4) {
+        if (temperature >= HIGH_FEVER_THRESHOLD) {
             return getDate() + " [Temperature] High fever (" + temperature + " \u00B0" + "C)";
         }
 
         // Check for moderate fever (≥38.0 °C)
-        if (temperature >= 38) {
+        if (temperature >= FEVER_THRESHOLD) {
             return getDate() + " [Temperature] Moderate fever (" + temperature + " \u00B0" + "C)";
         }
 
         // Check for hypothermia (<35.0 °C)
-        if (temperature < 35) {
+        if (temperature < HYPOTHERMIA_THRESHOLD) {
             return getDate() + " [Temperature] Hypothermia (" + temperature + " \u00B0" + "C)";
         }
 
@@ -0,0 +1,85 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The {@code VitalRegistry} class holds every known {@code VitalType}. The
+ * order of registration is the order of the vital columns in a RECORD entry,
+ * following the patient ID and date. Heart rate, blood pressure, temperature,
+ * and respiratory rate are registered by default; additional vitals are
+ * registered before the input file is read and occupy the following columns.
+ */
+public class VitalRegistry {
+    // Registered vital types in column order
+    private static List<VitalType> types = new ArrayList<VitalType>();
+    // Registered vital types by archive tag
+    private static Map<Integer, VitalType> typesByTag = new ConcurrentHashMap<Integer, VitalType>();
+    // Registered vital types by record class
+    private static Map<Class<? extends Record>, VitalType> typesByClass = new ConcurrentHashMap<Class<? extends Record>, VitalType>();
+
+    static {
+        register(HeartRateRecord.TYPE);
+        register(BloodPressureRecord.TYPE);
+        register(TemperatureRecord.TYPE);
+        register(RespiratoryRateRecord.TYPE);
+    }
+
+    /**
+     * Registers a vital type as the next column of a RECORD entry.
+     * 
+     * Precondition: {@code type} is not null.
+     * Postcondition: The vital type is added after every registered type.
+     * 
+     * @param type the vital type to register
+     * @throws RuntimeException if the tag or record class is already registered
+     */
+    public static synchronized void register(VitalType type) {
+        // Throw RuntimeException if the tag or record class is already in use
+        if (typesByTag.containsKey(type.getTag()) || typesByClass.containsKey(type.getRecordClass())) {
+            throw new RuntimeException("Vital type already registered: " + type.getName());
+        }
+
+        types.add(type);
+        typesByTag.put(type.getTag(), type);
+        typesByClass.put(type.getRecordClass(), type);
+    }
+
+    /**
+     * Returns the registered vital types in column order. The returned array is a
+     * snapshot, so it can be used as a precomputed column plan.
+     * 
+     * Precondition: None.
+     * Postcondition: A new array of the registered types is returned.
+     * 
+     * @return the registered vital types in column order
+     */
+    public static synchronized VitalType[] getTypes() {
+        return types.toArray(new VitalType[0]);
+    }
+
+    /**
+     * Returns the vital type with the given tag.
+     * 
+     * Precondition: None.
+     * Postcondition: The matching vital type is returned, or null if none exists.
+     * 
+     * @param tag the tag of the vital type
+     * @return the vital type with the given tag, or null if it does not exist
+     */
+    public static VitalType forTag(int tag) {
+        return typesByTag.get(tag);
+    }
+
+    /**
+     * Returns the vital type of a record.
+     * 
+     * Precondition: {@code record} is not null.
+     * Postcondition: The matching vital type is returned, or null if the record's
+     * class is not registered.
+     * 
+     * @param record the record to look up
+     * @return the vital type of the record, or null if it is not registered
+     */
+    public static VitalType forRecord(Record record) {
+        return typesByClass.get(record.getClass());
+    }
+}
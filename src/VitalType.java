@@ -0,0 +1,169 @@
+import java.time.*;
+
+/**
+ * The {@code VitalType} class describes one kind of vital sign recorded in a
+ * RECORD entry. Each type declares how its column is parsed into a
+ * {@code Record}, how that record is laid out as primitive integer values for
+ * storage, and which {@code Record} subclass evaluates it against normal
+ * thresholds through {@code Record#getAlert(char, Period)}.
+ * 
+ * Vital types are registered in {@code VitalRegistry}, which determines the
+ * order of the vital columns in a RECORD entry. Types whose thresholds depend
+ * only on a patient's age group and sex can also evaluate many records at once
+ * for {@code AlertEvaluator} by overriding {@code isGrouped()} and
+ * {@code evaluateGroup}.
+ */
+public abstract class VitalType {
+    private String name; // Display name of the vital type
+    private int tag; // Unique tag identifying the vital type in archives (1 to 127)
+    private int width; // Number of primitive values stored per record
+    private Class<? extends Record> recordClass; // Record subclass holding and evaluating the vital
+
+    /**
+     * Constructs a {@code VitalType} object with the specified properties.
+     * 
+     * Precondition: {@code name} and {@code recordClass} are not null.
+     * Postcondition: A new {@code VitalType} object is initialized.
+     * 
+     * @param name        the display name of the vital type
+     * @param tag         the unique tag of the vital type (1 to 127)
+     * @param width       the number of primitive values stored per record
+     * @param recordClass the {@code Record} subclass holding the vital
+     * @throws RuntimeException if {@code tag} or {@code width} is out of range
+     */
+    protected VitalType(String name, int tag, int width, Class<? extends Record> recordClass) {
+        // Throw RuntimeException if the tag does not fit in an archive tag byte
+        if (tag < 1 || tag > 127) {
+            throw new RuntimeException("Tag must be between 1 and 127");
+        }
+
+        // Throw RuntimeException if the record stores no values
+        if (width < 1) {
+            throw new RuntimeException("Width must be positive");
+        }
+
+        this.name = name;
+        this.tag = tag;
+        this.width = width;
+        this.recordClass = recordClass;
+    }
+
+    /**
+     * Returns the display name of the vital type.
+     * 
+     * @return the display name of the vital type
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the unique tag of the vital type.
+     * 
+     * @return the tag of the vital type
+     */
+    public int getTag() {
+        return tag;
+    }
+
+    /**
+     * Returns the number of primitive values stored per record.
+     * 
+     * @return the number of values stored per record
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the {@code Record} subclass holding the vital.
+     * 
+     * @return the record class of the vital type
+     */
+    public Class<? extends Record> getRecordClass() {
+        return recordClass;
+    }
+
+    /**
+     * Parses the vital's column of a RECORD entry.
+     * 
+     * Precondition: {@code date} and {@code field} are not null.
+     * Postcondition: A new record holding the parsed value is returned.
+     * 
+     * @param date  the date the vital was recorded
+     * @param field the text of the vital's column
+     * @return the parsed record
+     * @throws RuntimeException if the field is not correctly formatted
+     */
+    public abstract Record parse(LocalDate date, String field);
+
+    /**
+     * Stores the values of a record as primitive integers. The stored values must
+     * restore an equal record, so that archived records keep their alerts.
+     * 
+     * Precondition: {@code record} is an instance of the record class.
+     * {@code values} has at least {@code offset + getWidth()} elements.
+     * Postcondition: The record's values are stored in
+     * {@code values[offset..offset + getWidth() - 1]}.
+     * 
+     * @param record the record to store
+     * @param values the array to store values in
+     * @param offset the index of the first value
+     * @throws RuntimeException if the record cannot be stored exactly, so that
+     *                          {@code load} would not restore an equal record
+     */
+    public abstract void store(Record record, long[] values, int offset);
+
+    /**
+     * Creates a record from values stored by {@code store}.
+     * 
+     * Precondition: {@code values[offset..offset + getWidth() - 1]} were written
+     * by {@code store}.
+     * Postcondition: A new record equal to the stored one is returned.
+     * 
+     * @param date   the date of the record
+     * @param values the array holding stored values
+     * @param offset the index of the first value
+     * @return the restored record
+     */
+    public abstract Record load(LocalDate date, long[] values, int offset);
+
+    /**
+     * Returns whether records of this type are evaluated in groups through
+     * {@code evaluateGroup}. Records of other types are evaluated one at a time
+     * through {@code Record#getAlert(char, Period)}.
+     * 
+     * Precondition: None.
+     * Postcondition: True is returned if {@code evaluateGroup} is supported.
+     * 
+     * @return true if records of this type are evaluated in groups
+     */
+    boolean isGrouped() {
+        return false;
+    }
+
+    /**
+     * Evaluates a group of records whose patients share an age group and sex,
+     * deriving the thresholds once for the whole group. The alerts must be the
+     * same as {@code Record#getAlert(char, Period)} for every age in the group.
+     * 
+     * Precondition: {@code isGrouped()} is true. {@code records[from..to - 1]}
+     * are instances of the record class. {@code ageYears} is between 0 and
+     * {@code AlertEvaluator.ADULT_AGE}, which stands for every older age.
+     * Postcondition: The alert of {@code records[i]}, or an empty string if it is
+     * normal, is stored in {@code results[slots[i]]} for every i in the group.
+     * 
+     * @param records  the records to evaluate
+     * @param slots    the result slot of each record
+     * @param from     the index of the group's first record
+     * @param to       the index after the group's last record
+     * @param ageYears the age of the group in years
+     * @param sex      the sex of the group ('M', 'F', or 'X')
+     * @param results  the array to store alerts in
+     * @throws RuntimeException if the type does not support grouped evaluation
+     */
+    void evaluateGroup(Record[] records, int[] slots, int from, int to, int ageYears, char sex,
+            String[] results) {
+        throw new RuntimeException("Grouped evaluation is not supported: " + name);
+    }
+}
@@ -0,0 +1,538 @@
+import java.io.*;
+import java.util.*;
+import java.time.*;
+
+/**
+ * The {@code VitalsArchive} class reads and writes a compact binary archive of
+ * patients and their vital records, intended for long-term storage in place of
+ * the text input format.
+ * 
+ * An archive is either loaded into a {@code Clinic} with {@code read(File)} or
+ * read one patient at a time with {@code open(File, boolean)}, which lets
+ * {@code writeReport(File, File, long)} write the report of an archive that
+ * does not fit in memory.
+ * 
+ * Each patient's records are stored as one row per visit: the records of a
+ * RECORD entry share a date and follow the vital columns of
+ * {@code VitalRegistry}, so each patient's header holds a column plan of the
+ * vital types in one row, and each row holds the day delta from the previous
+ * row (starting at the date of birth) followed by the values of each column in
+ * plan order. No per-record tag is stored. Each value is stored as a delta from
+ * the same column in the previous row, in the primitive layout declared by its
+ * {@code VitalType}, so temperature is stored as fixed-point tenths of a
+ * degree.
+ * All deltas are zigzag-encoded variable-length integers, so the small changes
+ * between visits usually take a single byte.
+ * 
+ * Patients whose records do not form complete rows, such as records added one
+ * at a time through {@code Patient#addRecord(Record)}, are stored with an empty
+ * column plan and one tagged row per record instead.
+ * 
+ * Archive layout:
+ * - Header: magic number, version, number of patients
+ * - Patient: ID, name, sex, date of birth, number of columns, column tags,
+ * number of rows, rows
+ * - Row: day delta, value deltas of each column; with no columns, a vital type
+ * tag followed by the day delta and the value deltas of that type
+ */
+public class VitalsArchive {
+    // Magic number identifying an archive file ("CLVA")
+    private static final int MAGIC = 0x434C5641;
+
+    // Current archive format version
+    private static final int VERSION = 2;
+
+    // Number of possible vital type tags
+    private static final int NUM_TAGS = 128;
+
+    /**
+     * Writes the given patients and their records to an archive file.
+     * 
+     * Precondition: {@code patients} is not null. Every record belongs to a vital
+     * type registered in {@code VitalRegistry}.
+     * Postcondition: The archive is written to {@code file}, or no file is left
+     * behind if writing fails.
+     * 
+     * @param patients the patients to archive
+     * @param file     the file to write the archive to
+     * @throws RuntimeException if writing fails, a record type is unsupported, or
+     *                          a record cannot be stored exactly
+     */
+    public static void write(Collection<Patient> patients, File file) {
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            boolean complete = false;
+
+            try {
+                // Write the header
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                writeVarint(out, patients.size());
+
+                for (Patient patient : patients) {
+                    writePatient(out, patient);
+                }
+                complete = true;
+            } finally {
+                out.close();
+
+                // Delete an incomplete archive, so that it is never read back
+                if (!complete) {
+                    file.delete();
+                }
+            }
+        } catch (IOException e) {
+            // Throw RuntimeException if file writing fails
+            throw new RuntimeException("Error writing archive: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads an archive file into a new {@code Clinic}, streaming each decoded
+     * record into {@code Patient#addRecord(Record)}.
+     * 
+     * Precondition: {@code file} is an archive written by
+     * {@code write(Collection, File)}.
+     * Postcondition: A {@code Clinic} containing the archived patients and records
+     * is returned.
+     * 
+     * @param file the archive file to read
+     * @return the clinic loaded from the archive
+     * @throws RuntimeException if reading fails or the file is not a valid archive
+     */
+    public static Clinic read(File file) {
+        return read(file, false);
+    }
+
+    /**
+     * Reads an archive file into a new {@code Clinic} with the given alert
+     * evaluation mode.
+     * 
+     * Precondition: {@code file} is an archive written by
+     * {@code write(Collection, File)}.
+     * Postcondition: A {@code Clinic} containing the archived patients and records
+     * is returned.
+     * 
+     * @param file       the archive file to read
+     * @param lazyAlerts whether alerts are evaluated on first access instead of on
+     *                   load
+     * @return the clinic loaded from the archive
+     * @throws RuntimeException if reading fails or the file is not a valid archive
+     */
+    public static Clinic read(File file, boolean lazyAlerts) {
+        Clinic clinic = new Clinic(lazyAlerts);
+        PatientReader reader = open(file, lazyAlerts);
+
+        try {
+            while (reader.hasNext()) {
+                clinic.addPatient(reader.next());
+            }
+        } finally {
+            reader.close();
+        }
+
+        return clinic;
+    }
+
+    /**
+     * Opens an archive file for reading its patients one at a time, so that the
+     * archive can be processed without holding every patient in memory.
+     * 
+     * Precondition: {@code file} is an archive written by
+     * {@code write(Collection, File)}.
+     * Postcondition: A reader positioned before the first patient is returned;
+     * the caller must close it.
+     * 
+     * @param file       the archive file to read
+     * @param lazyAlerts whether alerts are evaluated on first access instead of on
+     *                   load
+     * @return the reader of the archived patients
+     * @throws RuntimeException if reading fails or the file is not a valid archive
+     */
+    public static PatientReader open(File file, boolean lazyAlerts) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            // Validate the header
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                in.close();
+                throw new RuntimeException("Not a valid vitals archive: " + file);
+            }
+
+            return new PatientReader(in, readVarint(in), lazyAlerts);
+        } catch (IOException e) {
+            // Throw RuntimeException if file reading fails
+            throw new RuntimeException("Error reading archive: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the clinic report of an archive with the external-memory sort,
+     * streaming the patients from the archive one at a time. Unlike loading the
+     * archive into a {@code Clinic} first, only the patient being rendered is held
+     * in memory next to the sort's heap budget.
+     * 
+     * Precondition: {@code archiveFile} is an archive written by
+     * {@code write(Collection, File)}. {@code heapBudget} is positive.
+     * Postcondition: The same report as {@code Clinic#generateReport()} for the
+     * loaded archive is written to {@code outputFile}.
+     * 
+     * @param archiveFile the archive file to read
+     * @param outputFile  the file to write the report to
+     * @param heapBudget  the approximate number of heap bytes available for sorting
+     * @throws RuntimeException if reading the archive or writing the report fails
+     */
+    public static void writeReport(File archiveFile, File outputFile, long heapBudget) {
+        ExternalReportWriter writer = new ExternalReportWriter(heapBudget);
+        PatientReader reader = open(archiveFile, true);
+
+        try {
+            writer.write(reader, outputFile);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Writes a single patient and their records as rows of the patient's column
+     * plan.
+     * 
+     * @param out     the stream to write to
+     * @param patient the patient to write
+     * @throws IOException      if writing fails
+     * @throws RuntimeException if a record type is unsupported or a record cannot
+     *                          be stored exactly
+     */
+    private static void writePatient(DataOutputStream out, Patient patient) throws IOException {
+        // Write demographic information
+        out.writeLong(patient.getId());
+        out.writeUTF(patient.getName());
+        out.writeByte(patient.getSex());
+        writeVarint(out, zigzag(patient.getDob().toEpochDay()));
+
+        List<Record> records = patient.getRecords();
+        VitalType[] types = new VitalType[records.size()];
+
+        for (int i = 0; i < types.length; i++) {
+            types[i] = VitalRegistry.forRecord(records.get(i));
+
+            // Throw RuntimeException if the record type is not registered
+            if (types[i] == null) {
+                throw new RuntimeException("Unsupported record type: " + records.get(i).getClass().getName());
+            }
+        }
+
+        // Write the column plan, followed by the number of rows
+        int numColumns = numColumns(records, types);
+        writeVarint(out, numColumns);
+        for (int c = 0; c < numColumns; c++) {
+            out.writeByte(types[c].getTag());
+        }
+        writeVarint(out, numColumns > 0 ? records.size() / numColumns : records.size());
+
+        // Previous date and previous values of each column (or each vital type
+        // without a column plan), used for deltas
+        long previousDay = patient.getDob().toEpochDay();
+        long[][] previous = new long[numColumns > 0 ? numColumns : NUM_TAGS][];
+
+        for (int i = 0; i < records.size(); i++) {
+            Record record = records.get(i);
+            VitalType type = types[i];
+
+            // Start a row with its day delta, preceded by the vital type tag
+            // without a column plan
+            if (numColumns == 0 || i % numColumns == 0) {
+                if (numColumns == 0) {
+                    out.writeByte(type.getTag());
+                }
+
+                long day = record.getDate().toEpochDay();
+                writeVarint(out, zigzag(day - previousDay));
+                previousDay = day;
+            }
+
+            // Store each value as a delta from the previous value of its column
+            long[] values = new long[type.getWidth()];
+            try {
+                type.store(record, values, 0);
+            } catch (RuntimeException e) {
+                // Throw RuntimeException naming the record that cannot be stored
+                throw new RuntimeException("Cannot archive the " + type.getName() + " of patient "
+                        + patient.getId() + " on " + record.getDate() + ": " + e.getMessage());
+            }
+            long[] last = previousValues(previous, numColumns > 0 ? i % numColumns : type.getTag(), values.length);
+
+            for (int v = 0; v < values.length; v++) {
+                writeVarint(out, zigzag(values[v] - last[v]));
+                last[v] = values[v];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of columns of a patient's column plan: the vital types of
+     * the records on the first date, up to the first repeated type. Every row must
+     * repeat the plan on a single date; otherwise there is no plan.
+     * 
+     * @param records the records of the patient in the order they were added
+     * @param types   the vital type of each record
+     * @return the number of columns, or 0 if the records do not form rows
+     */
+    private static int numColumns(List<Record> records, VitalType[] types) {
+        if (records.isEmpty()) {
+            return 0;
+        }
+
+        // Take the vital types of the first row as the plan
+        LocalDate firstDate = records.get(0).getDate();
+        int numColumns = 0;
+
+        while (numColumns < records.size() && records.get(numColumns).getDate().equals(firstDate)
+                && !Arrays.asList(types).subList(0, numColumns).contains(types[numColumns])) {
+            numColumns++;
+        }
+
+        if (records.size() % numColumns != 0) {
+            return 0;
+        }
+
+        // Check that every row follows the plan and shares one date
+        for (int i = numColumns; i < records.size(); i++) {
+            int column = i % numColumns;
+            if (types[i] != types[column] || !records.get(i).getDate().equals(records.get(i - column).getDate())) {
+                return 0;
+            }
+        }
+
+        return numColumns;
+    }
+
+    /**
+     * Reads a single patient and their records, streaming each decoded record into
+     * {@code Patient#addRecord(Record)}.
+     * 
+     * @param in         the stream to read from
+     * @param lazyAlerts whether alerts are evaluated on first access instead of on
+     *                   load
+     * @return the patient read from the archive
+     * @throws IOException if reading fails or the patient is malformed
+     */
+    private static Patient readPatient(DataInputStream in, boolean lazyAlerts) throws IOException {
+        // Read demographic information
+        long id = in.readLong();
+        String name = in.readUTF();
+        char sex = (char) in.readUnsignedByte();
+        LocalDate dob = LocalDate.ofEpochDay(unzigzag(readVarint(in)));
+
+        Patient patient = new Patient(id, name, sex, dob, lazyAlerts);
+
+        // Read the column plan, followed by the number of rows
+        VitalType[] plan = new VitalType[(int) readVarint(in)];
+        for (int c = 0; c < plan.length; c++) {
+            plan[c] = readType(in);
+        }
+        long numRows = readVarint(in);
+
+        // Previous date and previous values of each column (or each vital type
+        // without a column plan), used for deltas
+        long previousDay = dob.toEpochDay();
+        long[][] previous = new long[plan.length > 0 ? plan.length : NUM_TAGS][];
+
+        for (long r = 0; r < numRows; r++) {
+            // Without a column plan, each row holds a single record of a tagged type
+            VitalType[] row = plan.length > 0 ? plan : new VitalType[] { readType(in) };
+
+            // Apply the day delta of the row
+            previousDay += unzigzag(readVarint(in));
+            LocalDate date = LocalDate.ofEpochDay(previousDay);
+
+            for (int c = 0; c < row.length; c++) {
+                // Restore each value from its delta
+                long[] last = previousValues(previous, plan.length > 0 ? c : row[c].getTag(), row[c].getWidth());
+                for (int v = 0; v < last.length; v++) {
+                    last[v] += unzigzag(readVarint(in));
+                }
+
+                patient.addRecord(row[c].load(date, last, 0));
+            }
+        }
+
+        return patient;
+    }
+
+    /**
+     * Reads a vital type tag and returns its registered vital type.
+     * 
+     * @param in the stream to read from
+     * @return the vital type with the tag
+     * @throws IOException if reading fails or the tag is not registered
+     */
+    private static VitalType readType(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        VitalType type = VitalRegistry.forTag(tag);
+
+        if (type == null) {
+            throw new IOException("Unknown vital type tag " + tag);
+        }
+
+        return type;
+    }
+
+    /**
+     * Returns the previous values of a column or vital type, creating them (as
+     * zeros) on its first record.
+     * 
+     * Precondition: {@code previous} has an element for every possible key.
+     * Postcondition: The array of previous values of the key is returned.
+     * 
+     * @param previous the previous values, indexed by column or vital type tag
+     * @param key      the column or vital type tag
+     * @param width    the number of values stored per record
+     * @return the previous values of the key
+     */
+    private static long[] previousValues(long[][] previous, int key, int width) {
+        if (previous[key] == null) {
+            previous[key] = new long[width];
+        }
+        return previous[key];
+    }
+
+    /**
+     * Maps a signed value to an unsigned value so that small negative numbers
+     * also encode to few bytes.
+     * 
+     * @param value the signed value
+     * @return the zigzag-encoded value
+     */
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Reverses {@code zigzag(long)}.
+     * 
+     * @param value the zigzag-encoded value
+     * @return the signed value
+     */
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes an unsigned value using 7 bits per byte, with the high bit set on
+     * every byte except the last.
+     * 
+     * @param out   the stream to write to
+     * @param value the unsigned value to write
+     * @throws IOException if writing fails
+     */
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads an unsigned value written by {@code writeVarint}.
+     * 
+     * @param in the stream to read from
+     * @return the unsigned value
+     * @throws IOException if reading fails or the value is malformed
+     */
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed variable-length integer");
+    }
+    /**
+     * The {@code PatientReader} class reads the patients of an archive in the
+     * order they were written, decoding each patient only when it is requested.
+     */
+    public static class PatientReader implements Iterator<Patient>, Closeable {
+        private DataInputStream in; // Archive stream positioned at the next patient
+        private long numRemaining; // Number of patients not yet read
+        private boolean lazyAlerts; // Whether read patients evaluate alerts on first access
+
+        /**
+         * Constructs a {@code PatientReader} for an archive stream positioned after
+         * its header.
+         * 
+         * @param in          the archive stream
+         * @param numPatients the number of patients in the archive
+         * @param lazyAlerts  whether alerts are evaluated on first access instead
+         *                    of on load
+         */
+        private PatientReader(DataInputStream in, long numPatients, boolean lazyAlerts) {
+            this.in = in;
+            this.numRemaining = numPatients;
+            this.lazyAlerts = lazyAlerts;
+        }
+
+        /**
+         * Returns whether the archive has patients that have not been read.
+         * 
+         * Precondition: None.
+         * Postcondition: True is returned if {@code next()} returns another patient.
+         * 
+         * @return true if another patient remains
+         */
+        @Override
+        public boolean hasNext() {
+            return numRemaining > 0;
+        }
+
+        /**
+         * Reads the next patient and their records from the archive.
+         * 
+         * Precondition: {@code hasNext()} is true.
+         * Postcondition: The next patient in archive order is returned.
+         * 
+         * @return the next patient
+         * @throws NoSuchElementException if every patient has been read
+         * @throws RuntimeException       if reading fails or the patient is
+         *                                malformed
+         */
+        @Override
+        public Patient next() {
+            // Throw NoSuchElementException if every patient has been read
+            if (numRemaining == 0) {
+                throw new NoSuchElementException();
+            }
+
+            try {
+                Patient patient = readPatient(in, lazyAlerts);
+                numRemaining--;
+                return patient;
+            } catch (IOException e) {
+                // Throw RuntimeException if file reading fails
+                throw new RuntimeException("Error reading archive: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Closes the archive file.
+         * 
+         * Precondition: None.
+         * Postcondition: The archive file is closed.
+         */
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Nothing was written, so a failed close loses no data
+            }
+        }
+    }
+}